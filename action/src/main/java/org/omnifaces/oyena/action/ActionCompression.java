@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.action;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.faces.context.FacesContext;
+import org.omnifaces.oyena.common.Compression;
+
+/**
+ * The Action response compression.
+ *
+ * <p>
+ * When the <code>org.omnifaces.oyena.action.COMPRESSION</code> context parameter
+ * is set to <code>true</code> responses are gzip or deflate compressed if the
+ * client accepts it (see the Accept-Encoding request header). Responses smaller
+ * than the minimum size (set with the
+ * <code>org.omnifaces.oyena.action.COMPRESSION_MIN_SIZE</code> context
+ * parameter, defaults to 1024 bytes) are sent uncompressed as compressing them
+ * does not pay off. The compression level is set with the
+ * <code>org.omnifaces.oyena.action.COMPRESSION_LEVEL</code> context parameter
+ * (0-9, defaults to 6).
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ApplicationScoped
+public class ActionCompression extends Compression {
+
+    /**
+     * Initialize the compression settings.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            configure(facesContext.getExternalContext(), "org.omnifaces.oyena.action.");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.action;
+
+import java.lang.annotation.Documented;
+import static java.lang.annotation.ElementType.METHOD;
+import java.lang.annotation.Retention;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import java.lang.annotation.Target;
+
+/**
+ * The action container thread marker.
+ * 
+ * <p>
+ *  When virtual thread execution is enabled an action method annotated with this
+ *  annotation is still invoked on the container thread. Use it for methods
+ *  that are CPU heavy or that would pin the virtual thread to its carrier
+ *  thread (e.g. blocking while holding a monitor).
+ * </p>
+ * 
+ * <p>
+ *  Methods using beans bound to the request (e.g. request scoped beans or the
+ *  Faces context) are detected during deployment and treated as if annotated.
+ *  Methods that look up such beans programmatically (e.g. through Instance or
+ *  FacesContext.getCurrentInstance()) are not detected and must be annotated.
+ * </p>
+ * 
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@Documented
+@Target(value = {METHOD})
+@Retention(value = RUNTIME)
+public @interface ActionContainerThread {
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.action;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessManagedBean;
+import org.omnifaces.oyena.common.BeanReference;
+
+/**
+ * The action CDI extension.
+ *
+ * <p>
+ * This extension collects all the methods annotated with &#64;ActionMapping
+ * once during deployment so the action mapping matcher does not have to scan
+ * all the beans on every request.
+ * </p>
+ *
+ * <p>
+ * Routes whose method uses beans bound to the request (see
+ * BeanReference.isRequestBound) are flagged to run on the container thread,
+ * as they cannot be invoked on a virtual thread.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionExtension implements Extension {
+
+    /**
+     * Stores the routes collected during deployment.
+     */
+    private final List<ActionRoute> routes = new ArrayList<>();
+
+    /**
+     * Stores the route table.
+     */
+    private volatile ActionRouteTable routeTable = new ActionRouteTable(routes);
+
+    /**
+     * Collect the action routes of a managed bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process managed bean event.
+     */
+    public <T> void processManagedBean(@Observes ProcessManagedBean<T> event) {
+        for (AnnotatedMethod<? super T> method : event.getAnnotatedBeanClass().getMethods()) {
+            if (method.isAnnotationPresent(ActionMapping.class)) {
+                ActionMapping actionMapping = method.getAnnotation(ActionMapping.class);
+                routes.add(new ActionRoute(event.getBean(), method.getJavaMember(), actionMapping.value()));
+            }
+        }
+    }
+
+    /**
+     * Build the route table after deployment validation.
+     *
+     * @param event the after deployment validation event.
+     * @param beanManager the bean manager.
+     */
+    public void afterDeploymentValidation(@Observes AfterDeploymentValidation event, BeanManager beanManager) {
+        for (ActionRoute route : routes) {
+            if (!route.isContainerThread() && BeanReference.isRequestBound(
+                    beanManager, route.getBean(), getBeanParameterTypes(route.getMethod()))) {
+                route.setContainerThread(true);
+            }
+        }
+        routeTable = new ActionRouteTable(routes);
+        routes.clear();
+    }
+
+    /**
+     * Get the types of the parameters of the method that are resolved as CDI
+     * beans (those without an action parameter annotation).
+     *
+     * @param method the method.
+     * @return the types.
+     */
+    private static Type[] getBeanParameterTypes(Method method) {
+        ArrayList<Type> types = new ArrayList<>();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            boolean bean = true;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof ActionHeaderParameter
+                        || annotation instanceof ActionPathParameter
+                        || annotation instanceof ActionQueryParameter) {
+                    bean = false;
+                    break;
+                }
+            }
+            if (bean) {
+                types.add(parameterTypes[i]);
+            }
+        }
+        return types.toArray(new Type[0]);
+    }
+
+    /**
+     * Get the route table.
+     *
+     * @return the route table.
+     */
+    public ActionRouteTable getRouteTable() {
+        return routeTable;
+    }
+}
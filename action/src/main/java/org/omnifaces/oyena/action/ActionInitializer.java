@@ -55,6 +55,7 @@ public class ActionInitializer implements ServletContainerInitializer {
         if (servletContext.getServletRegistration("Oyena Action Servlet") == null) {
             Dynamic dynamic = servletContext.addServlet("Oyena Action Servlet", FacesServlet.class.getName());
             dynamic.addMapping("/action/*");
+            dynamic.setAsyncSupported(true);
             dynamic.setInitParameter("javax.faces.LIFECYCLE_ID", ActionLifecycle.class.getName());
         }
     }
@@ -27,23 +27,99 @@
 package org.omnifaces.oyena.action;
 
 import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.faces.FacesException;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.faces.event.PhaseListener;
 import javax.faces.lifecycle.Lifecycle;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import org.omnifaces.oyena.common.CompressionResponse;
 
 /**
  * The Action lifecycle.
  *
+ * <p>
+ * An action method may return a CompletionStage of the view id, in which case
+ * the request is put in asynchronous mode and the container thread is
+ * released. When the CompletionStage completes the request is dispatched again
+ * and the view is rendered through the action response handler. If the
+ * asynchronous request times out a 503 (Service Unavailable) is sent, if the
+ * CompletionStage completes with a TimeoutException a 504 (Gateway Timeout)
+ * is sent. The timeout (in milliseconds) is set with the
+ * <code>org.omnifaces.oyena.action.ASYNC_TIMEOUT</code> context parameter
+ * (defaults to 30000).
+ * </p>
+ *
+ * <p>
+ * When the <code>org.omnifaces.oyena.action.VIRTUAL_THREADS</code> context
+ * parameter is set to <code>true</code> (requires Java 21 or later) action
+ * methods are invoked on a virtual thread per request and completed
+ * asynchronously, except for the methods annotated with
+ * &#64;ActionContainerThread and the methods using beans bound to the request
+ * (see ActionExtension), as the virtual thread has no Faces context and only
+ * an empty request context.
+ * </p>
+ *
+ * <p>
+ * The view is rendered through the Action compression, so it is gzip or
+ * deflate compressed when that is enabled and the client accepts it, except
+ * for the action methods annotated with &#64;ActionUncompressed.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 @Named("org.omnifaces.oyena.action.ActionLifecycle")
 public class ActionLifecycle extends Lifecycle {
 
+    /**
+     * Stores the asynchronous timeout context parameter name.
+     */
+    public static final String ASYNC_TIMEOUT_PARAM_NAME
+            = "org.omnifaces.oyena.action.ASYNC_TIMEOUT";
+
+    /**
+     * Stores the virtual threads context parameter name.
+     */
+    public static final String VIRTUAL_THREADS_PARAM_NAME
+            = "org.omnifaces.oyena.action.VIRTUAL_THREADS";
+
+    /**
+     * Stores the asynchronous timeout (in milliseconds).
+     */
+    private long asyncTimeout = 30000;
+
+    /**
+     * Stores the virtual thread executor (or null if disabled).
+     */
+    private ExecutorService virtualThreadExecutor;
+
+    /**
+     * Stores the Action compression.
+     */
+    @Inject
+    private ActionCompression actionCompression;
+
     /**
      * Stores the action mapping matcher.
      */
@@ -81,6 +157,46 @@ public class ActionLifecycle extends Lifecycle {
     public void addPhaseListener(PhaseListener phaseListener) {
     }
 
+    /**
+     * Complete the asynchronous request.
+     *
+     * @param facesContext the Faces context.
+     * @param asyncResult the action asynchronous result.
+     */
+    private void completeAsync(FacesContext facesContext, ActionAsyncResult asyncResult) {
+        Throwable throwable = asyncResult.getThrowable();
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        try {
+            if (asyncResult.isTimedOut()) {
+                facesContext.getExternalContext().responseSendError(503, "Asynchronous request timed out");
+                facesContext.responseComplete();
+                return;
+            }
+            if (throwable instanceof TimeoutException) {
+                facesContext.getExternalContext().responseSendError(504, "Asynchronous result timed out");
+                facesContext.responseComplete();
+                return;
+            }
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw new FacesException(throwable);
+        }
+        if (facesContext.getViewRoot() == null) {
+            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(
+                    facesContext, asyncResult.getViewId());
+            facesContext.setViewRoot(viewRoot);
+        }
+    }
+
     /**
      * Perform the execute part of Action lifecycle.
      *
@@ -89,9 +205,28 @@ public class ActionLifecycle extends Lifecycle {
      */
     @Override
     public void execute(FacesContext facesContext) throws FacesException {
+        ActionAsyncResult asyncResult = (ActionAsyncResult) facesContext.getExternalContext()
+                .getRequestMap().remove(ActionAsyncResult.class.getName());
+        if (asyncResult != null) {
+            completeAsync(facesContext, asyncResult);
+            return;
+        }
         ActionMappingMatch match = actionMappingMatcher.match(facesContext);
         if (match != null) {
+            if (match.isUncompressed()) {
+                facesContext.getExternalContext().getRequestMap().put(
+                        ActionLifecycle.class.getPackage().getName() + ".ActionUncompressed", Boolean.TRUE);
+            }
+            if (virtualThreadExecutor != null && !match.isContainerThread()) {
+                startAsync(facesContext, submit(actionMethodExecutor.prepare(facesContext, match)));
+                return;
+            }
             actionMethodExecutor.execute(facesContext, match);
+            CompletionStage<?> stage = (CompletionStage<?>) facesContext.getAttributes().remove(
+                    ActionLifecycle.class.getPackage().getName() + ".ActionCompletionStage");
+            if (stage != null) {
+                startAsync(facesContext, stage);
+            }
         } else {
             try {
                 facesContext.getExternalContext().responseSendError(404, "Unable to match action");
@@ -117,6 +252,39 @@ public class ActionLifecycle extends Lifecycle {
         return new PhaseListener[0];
     }
 
+    /**
+     * Destroy the virtual thread executor.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Initialize the asynchronous timeout and the virtual thread executor.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String timeout = externalContext.getInitParameter(ASYNC_TIMEOUT_PARAM_NAME);
+            if (timeout != null) {
+                asyncTimeout = Long.parseLong(timeout.trim());
+            }
+            if (Boolean.parseBoolean(externalContext.getInitParameter(VIRTUAL_THREADS_PARAM_NAME))) {
+                try {
+                    virtualThreadExecutor = (ExecutorService) Executors.class
+                            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException roe) {
+                    throw new FacesException("Virtual threads require Java 21 or later", roe);
+                }
+            }
+        }
+    }
+
     /**
      * Remove a phase listener.
      *
@@ -139,7 +307,114 @@ public class ActionLifecycle extends Lifecycle {
     @Override
     public void render(FacesContext facesContext) throws FacesException {
         if (!facesContext.getResponseComplete()) {
-            actionResponseHandler.respond(facesContext);
+            ExternalContext externalContext = facesContext.getExternalContext();
+            Object response = externalContext.getResponse();
+            CompressionResponse compressionResponse = null;
+            if (!externalContext.getRequestMap().containsKey(
+                    ActionLifecycle.class.getPackage().getName() + ".ActionUncompressed")) {
+                compressionResponse = actionCompression.start(externalContext);
+            }
+            try {
+                actionResponseHandler.respond(facesContext);
+                if (compressionResponse != null) {
+                    compressionResponse.finish();
+                }
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            } finally {
+                if (compressionResponse != null) {
+                    compressionResponse.release();
+                    externalContext.setResponse(response);
+                }
+            }
+        }
+    }
+
+    /**
+     * Submit the prepared action method to the virtual thread executor.
+     *
+     * @param callable the Callable returning the view id.
+     * @return the CompletionStage of the view id.
+     */
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Object> submit(Callable<Object> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, virtualThreadExecutor).thenCompose(result -> result instanceof CompletionStage
+                ? (CompletionStage<Object>) result : CompletableFuture.completedFuture(result));
+    }
+
+    /**
+     * Start the asynchronous request.
+     *
+     * <p>
+     * If the CompletionStage already completed, or the request does not
+     * support asynchronous mode, the outcome is completed on the current
+     * thread.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param stage the CompletionStage.
+     */
+    private void startAsync(FacesContext facesContext, CompletionStage<?> stage) {
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        if ((stage instanceof CompletableFuture && ((CompletableFuture<?>) stage).isDone())
+                || !request.isAsyncSupported()) {
+            ActionAsyncResult asyncResult;
+            try {
+                asyncResult = new ActionAsyncResult(Objects.toString(
+                        stage.toCompletableFuture().get(asyncTimeout, TimeUnit.MILLISECONDS), null), null, false);
+            } catch (ExecutionException ee) {
+                asyncResult = new ActionAsyncResult(null, ee.getCause(), false);
+            } catch (TimeoutException te) {
+                asyncResult = new ActionAsyncResult(null, null, true);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new FacesException(ie);
+            }
+            completeAsync(facesContext, asyncResult);
+            return;
         }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(asyncTimeout);
+        AtomicBoolean dispatched = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                dispatched.set(true);
+                asyncContext.complete();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (dispatched.compareAndSet(false, true)) {
+                    request.setAttribute(ActionAsyncResult.class.getName(),
+                            new ActionAsyncResult(null, null, true));
+                    asyncContext.dispatch();
+                }
+            }
+        });
+        stage.whenComplete((viewId, throwable) -> {
+            if (dispatched.compareAndSet(false, true)) {
+                request.setAttribute(ActionAsyncResult.class.getName(),
+                        new ActionAsyncResult(Objects.toString(viewId, null), throwable, false));
+                asyncContext.dispatch();
+            }
+        });
+        facesContext.responseComplete();
     }
 }
@@ -51,6 +51,11 @@ public class ActionMappingMatch {
      */
     private Bean<?> bean;
 
+    /**
+     * Stores the container thread flag.
+     */
+    private boolean containerThread;
+
     /**
      * Stores the method.
      */
@@ -61,6 +66,44 @@ public class ActionMappingMatch {
      */
     private String pathInfo;
 
+    /**
+     * Stores the path parameter names.
+     */
+    private String[] pathParameterNames = new String[0];
+
+    /**
+     * Stores the path parameter offsets (start and end for each name).
+     */
+    private int[] pathParameterOffsets = new int[0];
+
+    /**
+     * Stores the uncompressed flag.
+     */
+    private boolean uncompressed;
+
+    /**
+     * Constructor.
+     */
+    public ActionMappingMatch() {
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param match the action mapping match to copy.
+     */
+    public ActionMappingMatch(ActionMappingMatch match) {
+        this.actionMapping = match.actionMapping;
+        this.mappingType = match.mappingType;
+        this.bean = match.bean;
+        this.containerThread = match.containerThread;
+        this.method = match.method;
+        this.pathInfo = match.pathInfo;
+        this.pathParameterNames = match.pathParameterNames;
+        this.pathParameterOffsets = match.pathParameterOffsets;
+        this.uncompressed = match.uncompressed;
+    }
+
     /**
      * Get the action mapping.
      * 
@@ -115,6 +158,101 @@ public class ActionMappingMatch {
         return pathInfo;
     }
 
+    /**
+     * Get the index of the given path parameter.
+     *
+     * @param name the name.
+     * @return the index, or -1 if not found.
+     */
+    private int getPathParameterIndex(String name) {
+        for (int i = 0; i < pathParameterNames.length; i++) {
+            if (pathParameterNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the path parameter (a.k.a the value of a named capturing group).
+     *
+     * @param name the name.
+     * @return the path parameter, or null if the capturing group did not
+     * participate in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public String getPathParameter(String name) {
+        int start = getPathParameterStart(name);
+        if (start == -1) {
+            return null;
+        }
+        return pathInfo.substring(start, getPathParameterEnd(name));
+    }
+
+    /**
+     * Get the end offset of the path parameter in the path info.
+     *
+     * @param name the name.
+     * @return the end offset, or -1 if the capturing group did not participate
+     * in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public int getPathParameterEnd(String name) {
+        int index = getPathParameterIndex(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("No path parameter with name: " + name);
+        }
+        return pathParameterOffsets[index * 2 + 1];
+    }
+
+    /**
+     * Get the path parameter names.
+     *
+     * @return the path parameter names.
+     */
+    public String[] getPathParameterNames() {
+        return pathParameterNames;
+    }
+
+    /**
+     * Get the path parameter offsets (start and end for each name).
+     *
+     * @return the path parameter offsets.
+     */
+    public int[] getPathParameterOffsets() {
+        return pathParameterOffsets;
+    }
+
+    /**
+     * Get the start offset of the path parameter in the path info.
+     *
+     * @param name the name.
+     * @return the start offset, or -1 if the capturing group did not
+     * participate in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public int getPathParameterStart(String name) {
+        int index = getPathParameterIndex(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("No path parameter with name: " + name);
+        }
+        return pathParameterOffsets[index * 2];
+    }
+
+    /**
+     * Has the path parameter.
+     *
+     * @param name the name.
+     * @return true if the action mapping has a path parameter with the given name,
+     * false otherwise.
+     */
+    public boolean hasPathParameter(String name) {
+        return getPathParameterIndex(name) != -1;
+    }
+
     /**
      * Set the action mapping.
      *
@@ -124,6 +262,24 @@ public class ActionMappingMatch {
         this.actionMapping = actionMApping;
     }
 
+    /**
+     * Is the method to be invoked on the container thread.
+     *
+     * @return true if it is (see &#64;ActionContainerThread), false otherwise.
+     */
+    public boolean isContainerThread() {
+        return containerThread;
+    }
+
+    /**
+     * Is the response to be sent uncompressed.
+     *
+     * @return true if it is (see &#64;ActionUncompressed), false otherwise.
+     */
+    public boolean isUncompressed() {
+        return uncompressed;
+    }
+
     /**
      * Set the bean.
      *
@@ -142,6 +298,15 @@ public class ActionMappingMatch {
         this.mappingType = mappingType;
     }
 
+    /**
+     * Set the container thread flag.
+     *
+     * @param containerThread the container thread flag.
+     */
+    public void setContainerThread(boolean containerThread) {
+        this.containerThread = containerThread;
+    }
+
     /**
      * Set the method.
      *
@@ -159,4 +324,37 @@ public class ActionMappingMatch {
     public void setPathInfo(String pathInfo) {
         this.pathInfo = pathInfo;
     }
+
+    /**
+     * Set the path parameter names.
+     *
+     * @param pathParameterNames the path parameter names.
+     */
+    public void setPathParameterNames(String[] pathParameterNames) {
+        this.pathParameterNames = pathParameterNames;
+    }
+
+    /**
+     * Set the path parameter offsets.
+     *
+     * <p>
+     * For each path parameter name the array contains the start and the end
+     * offset in the path info, or -1 and -1 if the capturing group did not
+     * participate in the match.
+     * </p>
+     *
+     * @param pathParameterOffsets the path parameter offsets.
+     */
+    public void setPathParameterOffsets(int[] pathParameterOffsets) {
+        this.pathParameterOffsets = pathParameterOffsets;
+    }
+
+    /**
+     * Set the uncompressed flag.
+     *
+     * @param uncompressed the uncompressed flag.
+     */
+    public void setUncompressed(boolean uncompressed) {
+        this.uncompressed = uncompressed;
+    }
 }
@@ -26,6 +26,7 @@
  */
 package org.omnifaces.oyena.action;
 
+import java.util.concurrent.Callable;
 import javax.faces.context.FacesContext;
 
 /**
@@ -42,4 +43,28 @@ public interface ActionMethodExecutor {
      * @param actionMappingMatch the action mapping match.
      */
     public void execute(FacesContext facesContext, ActionMappingMatch actionMappingMatch);
+
+    /**
+     * Prepare the method for execution on another thread.
+     *
+     * <p>
+     * Everything that needs the Faces context (e.g. binding the parameters) is
+     * done on the calling thread, the returned Callable only invokes the
+     * method and may be called on any thread. It returns the view id, or a
+     * CompletionStage of the view id. The default implementation executes the
+     * method on the calling thread.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param actionMappingMatch the action mapping match.
+     * @return the Callable returning the view id.
+     */
+    default Callable<Object> prepare(FacesContext facesContext, ActionMappingMatch actionMappingMatch) {
+        execute(facesContext, actionMappingMatch);
+        Object stage = facesContext.getAttributes().remove(
+                ActionLifecycle.class.getPackage().getName() + ".ActionCompletionStage");
+        Object result = stage != null ? stage
+                : facesContext.getViewRoot() != null ? facesContext.getViewRoot().getViewId() : null;
+        return () -> result;
+    }
 }
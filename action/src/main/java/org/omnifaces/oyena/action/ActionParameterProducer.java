@@ -47,4 +47,23 @@ public interface ActionParameterProducer {
      */
     public Object produce(FacesContext facesContext, ActionMappingMatch actionMappingMatch, Class<?> parameterType,
         Annotation[] parameterAnnotations);
+
+    /**
+     * Create a resolver for the given parameter.
+     *
+     * <p>
+     * This is called once for each parameter of an action method. The default
+     * implementation returns a resolver that delegates to
+     * {@link #produce(FacesContext, ActionMappingMatch, Class, Annotation[])}.
+     * </p>
+     *
+     * @param parameterType the type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver.
+     */
+    default ActionParameterResolver createResolver(Class<?> parameterType,
+            Annotation[] parameterAnnotations) {
+        return (facesContext, actionMappingMatch) -> produce(facesContext,
+                actionMappingMatch, parameterType, parameterAnnotations);
+    }
 }
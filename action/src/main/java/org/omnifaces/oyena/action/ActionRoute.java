@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.action;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.enterprise.inject.spi.Bean;
+
+/**
+ * The action route class.
+ *
+ * <p>
+ * An action route is the combination of a bean and one of its methods
+ * annotated with &#64;ActionMapping. Action routes are collected once during
+ * deployment by the action extension, at which point the action mapping is
+ * classified by its mapping type.
+ * </p>
+ *
+ * <p>
+ * Action routes are ordered with the longest action mapping first. Remaining
+ * ties are broken by the declaring class and method name so the order is
+ * deterministic.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionRoute implements Comparable<ActionRoute> {
+
+    /**
+     * Stores the pattern used to find named capturing groups.
+     */
+    private static final Pattern NAMED_GROUP_PATTERN = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+
+    /**
+     * Stores the regular expression meta characters.
+     */
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * Stores the regular expression quantifier characters.
+     */
+    private static final String QUANTIFIER_CHARACTERS = "?*+{";
+
+    /**
+     * Stores the action mapping (without the wildcard or regex: prefix).
+     */
+    private final String actionMapping;
+
+    /**
+     * Stores the bean.
+     */
+    private final Bean<?> bean;
+
+    /**
+     * Stores the container thread flag.
+     */
+    private boolean containerThread;
+
+    /**
+     * Stores the literal prefix.
+     */
+    private final String literalPrefix;
+
+    /**
+     * Stores the mapping type.
+     */
+    private final ActionMappingType mappingType;
+
+    /**
+     * Stores the method.
+     */
+    private final Method method;
+
+    /**
+     * Stores the path parameter names (a.k.a named capturing groups).
+     */
+    private final String[] pathParameterNames;
+
+    /**
+     * Stores the compiled pattern (only for a regular expression mapping).
+     */
+    private final Pattern pattern;
+
+    /**
+     * Stores the uncompressed flag.
+     */
+    private final boolean uncompressed;
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param method the method.
+     * @param mapping the mapping as specified by &#64;ActionMapping.
+     */
+    public ActionRoute(Bean<?> bean, Method method, String mapping) {
+        this.bean = bean;
+        this.method = method;
+        this.containerThread = method.isAnnotationPresent(ActionContainerThread.class);
+        this.uncompressed = method.isAnnotationPresent(ActionUncompressed.class);
+        if (mapping.startsWith("regex:")) {
+            this.mappingType = ActionMappingType.REGEX;
+            this.actionMapping = mapping.substring("regex:".length());
+            this.pattern = Pattern.compile(actionMapping);
+            this.literalPrefix = determineLiteralPrefix(actionMapping);
+            this.pathParameterNames = determinePathParameterNames(actionMapping);
+        } else if (mapping.endsWith("*")) {
+            this.mappingType = ActionMappingType.PREFIX;
+            this.actionMapping = mapping.substring(0, mapping.length() - 1);
+            this.literalPrefix = actionMapping;
+            this.pattern = null;
+            this.pathParameterNames = new String[0];
+        } else if (mapping.startsWith("*")) {
+            this.mappingType = ActionMappingType.EXTENSION;
+            this.actionMapping = mapping.substring(1);
+            this.literalPrefix = "";
+            this.pattern = null;
+            this.pathParameterNames = new String[0];
+        } else {
+            this.mappingType = ActionMappingType.EXACT;
+            this.actionMapping = mapping;
+            this.literalPrefix = mapping;
+            this.pattern = null;
+            this.pathParameterNames = new String[0];
+        }
+    }
+
+    /**
+     * Compare to another route.
+     *
+     * @param other the other route.
+     * @return a negative number if this route has precedence, a positive
+     * number otherwise.
+     */
+    @Override
+    public int compareTo(ActionRoute other) {
+        int result = Integer.compare(other.actionMapping.length(), actionMapping.length());
+        if (result == 0) {
+            result = method.getDeclaringClass().getName().compareTo(
+                    other.method.getDeclaringClass().getName());
+        }
+        if (result == 0) {
+            result = method.getName().compareTo(other.method.getName());
+        }
+        if (result == 0) {
+            result = actionMapping.compareTo(other.actionMapping);
+        }
+        return result;
+    }
+
+    /**
+     * Determine the literal prefix of a regular expression.
+     *
+     * <p>
+     * The literal prefix is the part of the regular expression that can only
+     * match itself. If the regular expression contains an alternation the
+     * literal prefix is empty as any alternative could match.
+     * </p>
+     *
+     * @param regex the regular expression.
+     * @return the literal prefix.
+     */
+    private static String determineLiteralPrefix(String regex) {
+        StringBuilder prefix = new StringBuilder();
+        if (regex.indexOf('|') == -1) {
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\' && i + 1 < regex.length()
+                        && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    prefix.append(regex.charAt(++i));
+                } else if (META_CHARACTERS.indexOf(c) != -1) {
+                    if (QUANTIFIER_CHARACTERS.indexOf(c) != -1 && prefix.length() > 0) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    return prefix.toString();
+                } else {
+                    prefix.append(c);
+                }
+            }
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Determine the path parameter names (a.k.a named capturing groups) of a
+     * regular expression.
+     *
+     * @param regex the regular expression.
+     * @return the path parameter names.
+     */
+    private static String[] determinePathParameterNames(String regex) {
+        ArrayList<String> names = new ArrayList<>();
+        Matcher matcher = NAMED_GROUP_PATTERN.matcher(regex);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Get the action mapping.
+     *
+     * @return the action mapping.
+     */
+    public String getActionMapping() {
+        return actionMapping;
+    }
+
+    /**
+     * Get the bean.
+     *
+     * @return the bean.
+     */
+    public Bean<?> getBean() {
+        return bean;
+    }
+
+    /**
+     * Get the literal prefix.
+     *
+     * <p>
+     * This is the part of the path info every match must start with, it is
+     * empty for an extension mapping.
+     * </p>
+     *
+     * @return the literal prefix.
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Get the mapping type.
+     *
+     * @return the mapping type.
+     */
+    public ActionMappingType getMappingType() {
+        return mappingType;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the path parameter names (a.k.a named capturing groups).
+     *
+     * @return the path parameter names.
+     */
+    public String[] getPathParameterNames() {
+        return pathParameterNames;
+    }
+
+    /**
+     * Get the compiled pattern.
+     *
+     * @return the compiled pattern, or null if this is not a regular
+     * expression mapping.
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Set the container thread flag.
+     *
+     * <p>
+     * This is done once by the action extension after deployment validation
+     * for a method that uses beans bound to the request.
+     * </p>
+     *
+     * @param containerThread the container thread flag.
+     */
+    public void setContainerThread(boolean containerThread) {
+        this.containerThread = containerThread;
+    }
+
+    /**
+     * Is the method to be invoked on the container thread.
+     *
+     * @return true if it is (see &#64;ActionContainerThread), false otherwise.
+     */
+    public boolean isContainerThread() {
+        return containerThread;
+    }
+
+    /**
+     * Is the response to be sent uncompressed.
+     *
+     * @return true if it is (see &#64;ActionUncompressed), false otherwise.
+     */
+    public boolean isUncompressed() {
+        return uncompressed;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import org.omnifaces.oyena.common.PathFilter;
+
+/**
+ * The action route table.
+ *
+ * <p>
+ * The action route table is an immutable dispatch index of all the action
+ * routes that were discovered during deployment. Each mapping type has its
+ * own structure:
+ * </p>
+ * <ul>
+ * <li>EXACT mappings are stored in a hash map,</li>
+ * <li>PREFIX mappings are stored in a segment trie that yields the longest
+ * matching prefix,</li>
+ * <li>EXTENSION mappings are stored in a trie of reversed suffixes that yields
+ * the longest matching suffix,</li>
+ * <li>REGEX mappings are stored in a list of precompiled patterns, longest
+ * first.</li>
+ * </ul>
+ *
+ * <p>
+ * The precedence is the one of the original matcher: of all the matching
+ * mappings the longest one wins, where the length of a mapping is its length
+ * without the "*" or the "regex:" prefix. So "regex:/.*" wins over the exact
+ * mapping "/a" and "*.xhtml" wins over the prefix mapping "/a/*". As the
+ * original matcher left ties to the order in which the beans and methods
+ * were discovered, a tie is decided by the mapping type in the order EXACT,
+ * PREFIX, EXTENSION and REGEX. An exact match is never shorter than a prefix
+ * or extension match, so those are only looked up if there is no exact match,
+ * and a regular expression is only evaluated if it is longer than the best
+ * match found so far.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionRouteTable {
+
+    /**
+     * Stores the exact routes.
+     */
+    private final Map<String, ActionRoute> exactRoutes;
+
+    /**
+     * Stores the root of the reversed suffix trie.
+     */
+    private final ExtensionNode extensionRoot;
+
+    /**
+     * Stores the path filter.
+     */
+    private final PathFilter pathFilter;
+
+    /**
+     * Stores the root of the prefix segment trie.
+     */
+    private final PrefixNode prefixRoot;
+
+    /**
+     * Stores the regular expression routes.
+     */
+    private final ActionRoute[] regexRoutes;
+
+    /**
+     * Stores the routes.
+     */
+    private final List<ActionRoute> routes;
+
+    /**
+     * Constructor.
+     *
+     * @param routes the routes.
+     */
+    public ActionRouteTable(List<ActionRoute> routes) {
+        ArrayList<ActionRoute> sortedRoutes = new ArrayList<>(routes);
+        Collections.sort(sortedRoutes);
+        this.routes = Collections.unmodifiableList(sortedRoutes);
+        this.exactRoutes = new HashMap<>();
+        this.extensionRoot = new ExtensionNode();
+        this.prefixRoot = new PrefixNode();
+        ArrayList<ActionRoute> regexRouteList = new ArrayList<>();
+        ArrayList<String> literalPrefixes = new ArrayList<>();
+        for (ActionRoute route : sortedRoutes) {
+            if (route.getMappingType() != ActionMappingType.EXTENSION) {
+                literalPrefixes.add(route.getLiteralPrefix());
+            }
+            String mapping = route.getActionMapping();
+            switch (route.getMappingType()) {
+                case EXACT:
+                    exactRoutes.putIfAbsent(mapping, route);
+                    break;
+                case PREFIX:
+                    PrefixNode prefixNode = prefixRoot;
+                    int start = 0;
+                    int end = mapping.indexOf('/');
+                    while (end != -1) {
+                        prefixNode = prefixNode.children.computeIfAbsent(
+                                mapping.substring(start, end), s -> new PrefixNode());
+                        start = end + 1;
+                        end = mapping.indexOf('/', start);
+                    }
+                    prefixNode.partials.putIfAbsent(mapping.substring(start), route);
+                    break;
+                case EXTENSION:
+                    ExtensionNode extensionNode = extensionRoot;
+                    for (int i = mapping.length() - 1; i >= 0; i--) {
+                        extensionNode = extensionNode.children.computeIfAbsent(
+                                mapping.charAt(i), c -> new ExtensionNode());
+                    }
+                    if (extensionNode.route == null) {
+                        extensionNode.route = route;
+                    }
+                    break;
+                default:
+                    regexRouteList.add(route);
+            }
+        }
+        this.pathFilter = new PathFilter(literalPrefixes);
+        this.regexRoutes = regexRouteList.toArray(new ActionRoute[0]);
+        prefixRoot.compile();
+    }
+
+    /**
+     * Create the action mapping match.
+     *
+     * <p>
+     * The offsets of the path parameters are recorded while the matcher is at
+     * hand so they never have to be matched again.
+     * </p>
+     *
+     * @param route the route.
+     * @param pathInfo the path info.
+     * @param matcher the matcher (or null if not a regular expression route).
+     * @return the action mapping match.
+     */
+    private ActionMappingMatch createMatch(ActionRoute route, String pathInfo, Matcher matcher) {
+        String[] names = route.getPathParameterNames();
+        int[] offsets = new int[names.length * 2];
+        for (int i = 0; i < names.length; i++) {
+            offsets[i * 2] = matcher.start(names[i]);
+            offsets[i * 2 + 1] = matcher.end(names[i]);
+        }
+        ActionMappingMatch result = new ActionMappingMatch();
+        result.setPathParameterNames(names);
+        result.setPathParameterOffsets(offsets);
+        result.setBean(route.getBean());
+        result.setContainerThread(route.isContainerThread());
+        result.setUncompressed(route.isUncompressed());
+        result.setMethod(route.getMethod());
+        result.setActionMapping(route.getActionMapping());
+        result.setMappingType(route.getMappingType());
+        result.setPathInfo(pathInfo);
+        return result;
+    }
+
+    /**
+     * Get the path filter.
+     *
+     * <p>
+     * Note the path filter does not cover the extension routes.
+     * </p>
+     *
+     * @return the path filter.
+     */
+    public PathFilter getPathFilter() {
+        return pathFilter;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * @return the routes.
+     */
+    public List<ActionRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Can the path info match any route.
+     *
+     * <p>
+     * This is a cheap check that does not evaluate any regular expression. If
+     * it returns false the path info can never match, if it returns true it
+     * may match.
+     * </p>
+     *
+     * @param pathInfo the path info.
+     * @return true if it may match, false if it can never match.
+     */
+    public boolean mayMatch(String pathInfo) {
+        return pathInfo != null
+                && (pathFilter.mayMatch(pathInfo) || matchExtension(pathInfo) != null);
+    }
+
+    /**
+     * Match the path info.
+     *
+     * @param pathInfo the path info.
+     * @return the action mapping match, or null if not found.
+     */
+    public ActionMappingMatch match(String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        ActionRoute route = exactRoutes.get(pathInfo);
+        if (route == null) {
+            route = matchPrefix(prefixRoot, pathInfo, 0);
+            ActionRoute extensionRoute = matchExtension(pathInfo);
+            if (extensionRoute != null && (route == null || extensionRoute.getActionMapping().length()
+                    > route.getActionMapping().length())) {
+                route = extensionRoute;
+            }
+        }
+        int length = route != null ? route.getActionMapping().length() : -1;
+        for (ActionRoute regexRoute : regexRoutes) {
+            if (regexRoute.getActionMapping().length() <= length) {
+                break;
+            }
+            Matcher matcher = regexRoute.getPattern().matcher(pathInfo);
+            if (matcher.matches()) {
+                return createMatch(regexRoute, pathInfo, matcher);
+            }
+        }
+        return route != null ? createMatch(route, pathInfo, null) : null;
+    }
+
+    /**
+     * Match the path info against the extension mappings.
+     *
+     * @param pathInfo the path info.
+     * @return the route with the longest matching suffix, or null if not found.
+     */
+    private ActionRoute matchExtension(String pathInfo) {
+        ActionRoute result = extensionRoot.route;
+        ExtensionNode node = extensionRoot;
+        for (int i = pathInfo.length() - 1; i >= 0; i--) {
+            node = node.children.get(pathInfo.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.route != null) {
+                result = node.route;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Match the path info against the prefix mappings.
+     *
+     * <p>
+     * The deepest node is tried first as its prefixes are the longest.
+     * </p>
+     *
+     * @param node the node.
+     * @param pathInfo the path info.
+     * @param start the start of the current segment in the path info.
+     * @return the route with the longest matching prefix, or null if not found.
+     */
+    private ActionRoute matchPrefix(PrefixNode node, String pathInfo, int start) {
+        int end = pathInfo.indexOf('/', start);
+        if (end != -1 && !node.children.isEmpty()) {
+            PrefixNode child = node.children.get(pathInfo.substring(start, end));
+            if (child != null) {
+                ActionRoute result = matchPrefix(child, pathInfo, end + 1);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        for (int i = 0; i < node.partialPrefixes.length; i++) {
+            if (pathInfo.startsWith(node.partialPrefixes[i], start)) {
+                return node.partialRoutes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A node in the reversed suffix trie.
+     */
+    private static class ExtensionNode {
+
+        /**
+         * Stores the children.
+         */
+        private final Map<Character, ExtensionNode> children = new HashMap<>();
+
+        /**
+         * Stores the route whose suffix ends at this node.
+         */
+        private ActionRoute route;
+    }
+
+    /**
+     * A node in the prefix segment trie.
+     */
+    private static class PrefixNode {
+
+        /**
+         * Stores the children keyed by path segment.
+         */
+        private final Map<String, PrefixNode> children = new HashMap<>();
+
+        /**
+         * Stores the routes keyed by their partial last segment while building.
+         */
+        private final Map<String, ActionRoute> partials = new HashMap<>();
+
+        /**
+         * Stores the partial last segments, longest first.
+         */
+        private String[] partialPrefixes;
+
+        /**
+         * Stores the routes belonging to the partial last segments.
+         */
+        private ActionRoute[] partialRoutes;
+
+        /**
+         * Compile this node and its children.
+         */
+        private void compile() {
+            ArrayList<String> prefixes = new ArrayList<>(partials.keySet());
+            prefixes.sort((p1, p2) -> Integer.compare(p2.length(), p1.length()));
+            partialPrefixes = prefixes.toArray(new String[0]);
+            partialRoutes = new ActionRoute[partialPrefixes.length];
+            for (int i = 0; i < partialPrefixes.length; i++) {
+                partialRoutes[i] = partials.get(partialPrefixes[i]);
+            }
+            partials.clear();
+            children.values().forEach(PrefixNode::compile);
+        }
+    }
+}
@@ -26,112 +26,106 @@
  */
 package org.omnifaces.oyena.action;
 
-import java.util.Iterator;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.spi.AnnotatedMethod;
-import javax.enterprise.inject.spi.AnnotatedType;
-import javax.enterprise.inject.spi.Bean;
-import javax.enterprise.inject.spi.CDI;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import org.omnifaces.oyena.common.RouteCache;
 
 /**
  * The default action mapping matcher.
  *
+ * <p>
+ * This matcher only consults the dispatch index that was built by the action
+ * extension during deployment, so the cost of matching does not grow with the
+ * number of beans or action mappings.
+ * </p>
+ *
+ * <p>
+ * A path info that cannot match any action route (according to the route
+ * table) is rejected before any regular expression is evaluated. The number of
+ * rejected requests is available through {@link #getRejectedCount()}.
+ * </p>
+ *
+ * <p>
+ * Optionally the matches of the most recently used URLs are kept in a bounded
+ * route cache so hot URLs skip matching completely. The route cache is enabled
+ * by setting the <code>org.omnifaces.oyena.action.ROUTE_CACHE_SIZE</code>
+ * context parameter to the maximum number of entries. The
+ * <code>org.omnifaces.oyena.action.ROUTE_CACHE_MAX_KEY_LENGTH</code> context
+ * parameter sets the length above which a path info is never cached (defaults
+ * to 256).
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultActionMappingMatcher implements ActionMappingMatcher {
 
     /**
-     * Find the action mapping for the given bean.
-     *
-     * @param facesContext the Faces context.
-     * @param bean the bean.
-     * @return the action mapping match, or null if not found.
+     * Stores the route cache max key length context parameter name.
      */
-    private ActionMappingMatch determineActionMappingMatch(FacesContext facesContext, Bean<?> bean) {
-        ActionMappingMatch result = null;
-        Class clazz = bean.getBeanClass();
-        AnnotatedType annotatedType = CDI.current().getBeanManager().createAnnotatedType(clazz);
-        Set<AnnotatedMethod> annotatedMethodSet = annotatedType.getMethods();
-        for (AnnotatedMethod method : annotatedMethodSet) {
-            if (method.isAnnotationPresent(ActionMapping.class)) {
-                ActionMapping requestMapping = method.getAnnotation(ActionMapping.class);
-                String mapping = requestMapping.value();
-                String pathInfo = facesContext.getExternalContext().getRequestPathInfo();
-                if (pathInfo != null) {
-                    if (pathInfo.equals(mapping)) {
-                        result = new ActionMappingMatch();
-                        result.setBean(bean);
-                        result.setMethod(method.getJavaMember());
-                        result.setActionMapping(mapping);
-                        result.setMappingType(ActionMappingType.EXACT);
-                        result.setPathInfo(pathInfo);
-                        break;
-                    } else if (mapping.endsWith("*")) {
-                        mapping = mapping.substring(0, mapping.length() - 1);
-                        if (pathInfo.startsWith(mapping)) {
-                            if (result == null) {
-                                result = new ActionMappingMatch();
-                                result.setBean(bean);
-                                result.setMethod(method.getJavaMember());
-                                result.setActionMapping(mapping);
-                                result.setMappingType(ActionMappingType.PREFIX);
-                                result.setPathInfo(pathInfo);
-                            } else if (mapping.length() > result.getLength()) {
-                                result.setBean(bean);
-                                result.setMethod(method.getJavaMember());
-                                result.setActionMapping(mapping);
-                                result.setMappingType(ActionMappingType.PREFIX);
-                                result.setPathInfo(pathInfo);
-                            }
-                        }
-                    } else if (mapping.startsWith("*")) {
-                        mapping = mapping.substring(1);
-                        if (pathInfo.endsWith(mapping)) {
-                            result = new ActionMappingMatch();
-                            result.setBean(bean);
-                            result.setMethod(method.getJavaMember());
-                            result.setActionMapping(mapping);
-                            result.setMappingType(ActionMappingType.EXTENSION);
-                            result.setPathInfo(pathInfo);
-                            break;
-                        }
-                    } else if (mapping.startsWith("regex:")) {
-                        mapping = mapping.substring("regex:".length());
-                        if (Pattern.matches(mapping, pathInfo)) {
-                            result = new ActionMappingMatch();
-                            result.setBean(bean);
-                            result.setMethod(method.getJavaMember());
-                            result.setActionMapping(mapping);
-                            result.setMappingType(ActionMappingType.REGEX);
-                            result.setPathInfo(pathInfo);
-                            break;
-                        }
-                    }
-                }
-            }
-            if (result != null
-                    && (result.getMappingType().equals(ActionMappingType.EXACT)
-                    || (result.getMappingType().equals(ActionMappingType.EXTENSION)))) {
-                break;
+    public static final String ROUTE_CACHE_MAX_KEY_LENGTH_PARAM_NAME
+            = "org.omnifaces.oyena.action.ROUTE_CACHE_MAX_KEY_LENGTH";
+
+    /**
+     * Stores the route cache size context parameter name.
+     */
+    public static final String ROUTE_CACHE_SIZE_PARAM_NAME
+            = "org.omnifaces.oyena.action.ROUTE_CACHE_SIZE";
+
+    /**
+     * Stores the rejected counter.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Stores the action extension.
+     */
+    @Inject
+    private ActionExtension actionExtension;
+
+    /**
+     * Stores the route cache (or null if disabled).
+     */
+    private RouteCache<String, ActionMappingMatch> routeCache;
+
+    /**
+     * Initialize the route cache.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String size = externalContext.getInitParameter(ROUTE_CACHE_SIZE_PARAM_NAME);
+            if (size != null && Integer.parseInt(size.trim()) > 0) {
+                String maxKeyLength = externalContext.getInitParameter(ROUTE_CACHE_MAX_KEY_LENGTH_PARAM_NAME);
+                routeCache = new RouteCache<>(Integer.parseInt(size.trim()),
+                        maxKeyLength != null ? Integer.parseInt(maxKeyLength.trim()) : 256,
+                        ActionMappingMatch::new);
             }
         }
-        return result;
     }
 
     /**
-     * Get the beans.
+     * Get the number of requests rejected by the path filter.
      *
-     * @return the beans.
+     * @return the number of rejected requests.
      */
-    private Iterator<Bean<?>> getBeans() {
-        Set<Bean<?>> beans = CDI.current().getBeanManager().getBeans(
-                Object.class, Any.Literal.INSTANCE);
-        return beans.iterator();
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the route cache.
+     *
+     * @return the route cache, or null if it is disabled.
+     */
+    public RouteCache<String, ActionMappingMatch> getRouteCache() {
+        return routeCache;
     }
 
     /**
@@ -142,17 +136,20 @@ public class DefaultActionMappingMatcher implements ActionMappingMatcher {
      */
     @Override
     public ActionMappingMatch match(FacesContext facesContext) {
-        ActionMappingMatch match = null;
-        Iterator<Bean<?>> beans = getBeans();
-        while (beans.hasNext()) {
-            Bean<?> bean = beans.next();
-            ActionMappingMatch candidate = determineActionMappingMatch(facesContext, bean);
-            if (match == null) {
-                match = candidate;
-            } else if (candidate != null && candidate.getLength() > match.getLength()) {
-                match = candidate;
-            }
+        String pathInfo = facesContext.getExternalContext().getRequestPathInfo();
+        ActionRouteTable routeTable = actionExtension.getRouteTable();
+        if (!routeTable.mayMatch(pathInfo)) {
+            rejected.increment();
+            return null;
         }
-        return match;
+        if (routeCache == null) {
+            return routeTable.match(pathInfo);
+        }
+        ActionMappingMatch result = routeCache.get(pathInfo);
+        if (result == null) {
+            result = routeTable.match(pathInfo);
+            routeCache.put(pathInfo, result);
+        }
+        return result;
     }
 }
@@ -26,28 +26,107 @@
  */
 package org.omnifaces.oyena.action;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
+import javax.enterprise.context.control.RequestContextController;
 import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.faces.FacesException;
 import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
 import javax.inject.Inject;
+import org.omnifaces.oyena.common.BeanReference;
+import org.omnifaces.oyena.common.MethodInvoker;
 
 /**
  * The default action method executor.
  *
+ * <p>
+ * Each action method is analysed once into an array of action parameter
+ * resolvers (its binding plan) so binding the parameters of a request does
+ * not need any reflection or annotation scanning. The method itself is invoked
+ * through a method invoker that is also created once per method, on
+ * a bean instance obtained from a bean reference that is resolved once
+ * per bean.
+ * </p>
+ *
+ * <p>
+ * If the action method returns a CompletionStage (of the view id) it is
+ * stored in the Faces context so the Action lifecycle can suspend the request
+ * until it completes. The &#64;Dependent instances created for it are only
+ * destroyed once the CompletionStage completes.
+ * </p>
+ *
+ * <p>
+ * When an action method is prepared for execution on another thread the
+ * parameters and the contextual instance of the bean are resolved on the
+ * calling thread. The method is then invoked with a request context activated
+ * on the executing thread, so request scoped beans used by the method resolve
+ * to instances of that (separate) request context, and there is no current
+ * Faces context. Methods using beans bound to the request are therefore never
+ * prepared, they are flagged to run on the container thread during
+ * deployment.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultActionMethodExecutor implements ActionMethodExecutor {
 
+    /**
+     * Stores the bean references.
+     */
+    private final ConcurrentHashMap<Bean<?>, BeanReference> beanReferences = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
+
+    /**
+     * Stores the binding plans.
+     */
+    private final ConcurrentHashMap<Method, ActionParameterResolver[]> bindingPlans = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the method invokers.
+     */
+    private final ConcurrentHashMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the request context controllers.
+     */
+    @Inject
+    private Instance<RequestContextController> requestContextControllers;
+
     /**
      * Stores the action parameter producer.
      */
     @Inject
     private ActionParameterProducer actionParameterProducer;
+
+    /**
+     * Create the binding plan for the given method.
+     *
+     * @param method the method.
+     * @return the binding plan.
+     */
+    private ActionParameterResolver[] createBindingPlan(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        ActionParameterResolver[] resolvers = new ActionParameterResolver[parameterTypes.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            resolvers[i] = actionParameterProducer.createResolver(
+                    parameterTypes[i], parameterAnnotations[i]);
+        }
+        return resolvers;
+    }
     
     /**
      * Execute the method.
@@ -57,28 +136,97 @@ public class DefaultActionMethodExecutor implements ActionMethodExecutor {
      */
     @Override
     public void execute(FacesContext facesContext, ActionMappingMatch actionMappingMatch) {
-        Instance instance = CDI.current().select(
-                actionMappingMatch.getBean().getBeanClass(), Any.Literal.INSTANCE);
-        String viewId;
+        BeanReference beanReference = beanReferences.computeIfAbsent(
+                actionMappingMatch.getBean(), bean -> new BeanReference(
+                        beanManager, bean, bean.getBeanClass()));
+        Object result;
         try {
-            Object[] parameters = new Object[actionMappingMatch.getMethod().getParameterCount()];
-            if (parameters.length > 0) {
-                for(int i=0; i<parameters.length; i++) {
-                    parameters[i] = actionParameterProducer.produce(
-                            facesContext,
-                            actionMappingMatch,
-                            actionMappingMatch.getMethod().getParameterTypes()[i],
-                            actionMappingMatch.getMethod().getParameterAnnotations()[i]);
-                }
-            }
-            viewId = (String) actionMappingMatch.getMethod().invoke(
-                    instance.get(), parameters);
+            Object[] parameters = resolveParameters(facesContext, actionMappingMatch);
+            MethodInvoker invoker = invokers.computeIfAbsent(
+                    actionMappingMatch.getMethod(), MethodInvoker::create);
+            result = invoker.invoke(beanReference.get(facesContext), parameters);
+        } catch (RuntimeException | Error e) {
+            BeanReference.release(facesContext);
+            throw e;
         } catch (Throwable throwable) {
+            BeanReference.release(facesContext);
             throw new FacesException(throwable);
         }
+        if (result instanceof CompletionStage) {
+            Runnable release = BeanReference.detach(facesContext);
+            ((CompletionStage<?>) result).whenComplete((viewId, throwable) -> release.run());
+            facesContext.getAttributes().put(
+                    ActionLifecycle.class.getPackage().getName() + ".ActionCompletionStage", result);
+            return;
+        }
+        BeanReference.release(facesContext);
         if (facesContext.getViewRoot() == null) {
-            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(facesContext, viewId);
+            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(facesContext, (String) result);
             facesContext.setViewRoot(viewRoot);
         }
     }
+
+    /**
+     * Prepare the method for execution on another thread.
+     *
+     * @param facesContext the Faces context.
+     * @param actionMappingMatch the action mapping match.
+     * @return the Callable returning the view id.
+     */
+    @Override
+    public Callable<Object> prepare(FacesContext facesContext, ActionMappingMatch actionMappingMatch) {
+        BeanReference beanReference = beanReferences.computeIfAbsent(
+                actionMappingMatch.getBean(), bean -> new BeanReference(
+                        beanManager, bean, bean.getBeanClass()));
+        Object[] parameters;
+        MethodInvoker invoker;
+        Object instance;
+        try {
+            parameters = resolveParameters(facesContext, actionMappingMatch);
+            invoker = invokers.computeIfAbsent(actionMappingMatch.getMethod(), MethodInvoker::create);
+            instance = beanReference.getContextualInstance(facesContext);
+        } catch (RuntimeException | Error e) {
+            BeanReference.release(facesContext);
+            throw e;
+        }
+        Runnable release = BeanReference.detach(facesContext);
+        return () -> {
+            RequestContextController requestContextController = requestContextControllers.get();
+            requestContextController.activate();
+            Object result = null;
+            try {
+                result = invoker.invoke(instance, parameters);
+                return result;
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new FacesException(throwable);
+            } finally {
+                requestContextController.deactivate();
+                requestContextControllers.destroy(requestContextController);
+                if (result instanceof CompletionStage) {
+                    ((CompletionStage<?>) result).whenComplete((value, throwable) -> release.run());
+                } else {
+                    release.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Resolve the parameters using the binding plan of the method.
+     *
+     * @param facesContext the Faces context.
+     * @param actionMappingMatch the action mapping match.
+     * @return the parameters.
+     */
+    private Object[] resolveParameters(FacesContext facesContext, ActionMappingMatch actionMappingMatch) {
+        ActionParameterResolver[] resolvers = bindingPlans.computeIfAbsent(
+                actionMappingMatch.getMethod(), this::createBindingPlan);
+        Object[] parameters = new Object[resolvers.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = resolvers[i].resolve(facesContext, actionMappingMatch);
+        }
+        return parameters;
+    }
 }
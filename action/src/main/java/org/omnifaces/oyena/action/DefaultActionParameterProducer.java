@@ -27,13 +27,12 @@
 package org.omnifaces.oyena.action;
 
 import java.lang.annotation.Annotation;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.faces.FacesException;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import org.omnifaces.oyena.common.BeanReference;
 
 /**
  * The default action parameter producer.
@@ -44,40 +43,73 @@ import javax.faces.context.FacesContext;
 public class DefaultActionParameterProducer implements ActionParameterProducer {
 
     /**
-     * Produce an instance for the given type.
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
+
+    /**
+     * Create a resolver for the given parameter.
+     *
+     * <p>
+     * The annotations are inspected once here, so the returned resolver does
+     * not have to do any annotation scanning. A parameter without annotation
+     * is resolved as a CDI bean through a bean reference, so the bean
+     * is also only resolved once.
+     * </p>
      *
-     * @param facesContext the Faces context.
-     * @param actionMappingMatch the Action mapping match.
      * @param parameterType the parameter type.
      * @param parameterAnnotations the parameter annotations.
-     * @return the instance.
+     * @return the resolver.
      */
     @Override
-    public Object produce(FacesContext facesContext, ActionMappingMatch actionMappingMatch, Class<?> parameterType,
+    public ActionParameterResolver createResolver(Class<?> parameterType,
             Annotation[] parameterAnnotations) {
-        
+
         ActionHeaderParameter header = getActionHeaderParameterAnnotation(parameterAnnotations);
         if (header != null) {
-            return facesContext.getExternalContext().getRequestHeaderMap().get(header.value());
+            String name = header.value();
+            return (facesContext, actionMappingMatch)
+                    -> facesContext.getExternalContext().getRequestHeaderMap().get(name);
         }
-        
+
         ActionPathParameter path = getActionPathParameterAnnotation(parameterAnnotations);
         if (path != null) {
-            Pattern pattern = Pattern.compile(actionMappingMatch.getActionMapping());
-            Matcher matcher = pattern.matcher(actionMappingMatch.getPathInfo());
-            if (matcher.matches()) {
-                return matcher.group(path.value());
-            } else {
-                throw new FacesException("Unable to match @ActionPathParameter: " + path.value());
-            }
+            String name = path.value();
+            return (facesContext, actionMappingMatch) -> {
+                if (actionMappingMatch.hasPathParameter(name)) {
+                    return actionMappingMatch.getPathParameter(name);
+                } else {
+                    throw new FacesException("Unable to match @ActionPathParameter: " + name);
+                }
+            };
         }
 
         ActionQueryParameter query = getActionQueryParameterAnnotation(parameterAnnotations);
         if (query != null) {
-            return facesContext.getExternalContext().getRequestParameterMap().get(query.value());
+            String name = query.value();
+            return (facesContext, actionMappingMatch)
+                    -> facesContext.getExternalContext().getRequestParameterMap().get(name);
         }
-        
-        return CDI.current().select(parameterType, Any.Literal.INSTANCE).get();
+
+        BeanReference beanReference = BeanReference.resolve(beanManager, parameterType);
+        return (facesContext, actionMappingMatch) -> beanReference.get(facesContext);
+    }
+
+    /**
+     * Produce an instance for the given type.
+     *
+     * @param facesContext the Faces context.
+     * @param actionMappingMatch the Action mapping match.
+     * @param parameterType the parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the instance.
+     */
+    @Override
+    public Object produce(FacesContext facesContext, ActionMappingMatch actionMappingMatch, Class<?> parameterType,
+            Annotation[] parameterAnnotations) {
+        return createResolver(parameterType, parameterAnnotations).resolve(
+                facesContext, actionMappingMatch);
     }
     
     /**
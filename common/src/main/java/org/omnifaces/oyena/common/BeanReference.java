@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.AmbiguousResolutionException;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.faces.context.FacesContext;
+
+/**
+ * The bean reference.
+ *
+ * <p>
+ * A bean reference caches the resolved bean for a given type so the
+ * typesafe resolution only happens once. For a normal scoped bean (e.g.
+ * &#64;ApplicationScoped or &#64;RequestScoped) the client proxy is obtained
+ * once and reused, as the client proxy itself takes care of looking up the
+ * contextual instance. For a &#64;Dependent bean a new instance is created for
+ * every request and it is destroyed when the request is released, see
+ * {@link #release(FacesContext)}.
+ * </p>
+ *
+ * <p>
+ * It is shared by the Action and REST modules.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class BeanReference {
+
+    /**
+     * Stores the attribute name used to track the dependent instances.
+     */
+    private static final String DEPENDENTS = BeanReference.class.getName() + ".Dependents";
+
+    /**
+     * Stores the bean.
+     */
+    private final Bean<?> bean;
+
+    /**
+     * Stores the bean manager.
+     */
+    private final BeanManager beanManager;
+
+    /**
+     * Stores the client proxy (only for a normal scoped bean).
+     */
+    private final Object clientProxy;
+
+    /**
+     * Stores the type.
+     */
+    private final Type type;
+
+    /**
+     * Constructor.
+     *
+     * @param beanManager the bean manager.
+     * @param bean the bean.
+     * @param type the type.
+     */
+    public BeanReference(BeanManager beanManager, Bean<?> bean, Type type) {
+        this.beanManager = beanManager;
+        this.bean = bean;
+        this.type = type;
+        if (beanManager.isNormalScope(bean.getScope())) {
+            clientProxy = beanManager.getReference(bean, type,
+                    beanManager.createCreationalContext(bean));
+        } else {
+            clientProxy = null;
+        }
+    }
+
+    /**
+     * Resolve the bean reference for the given type.
+     *
+     * @param beanManager the bean manager.
+     * @param type the type.
+     * @return the bean reference.
+     * @throws UnsatisfiedResolutionException when no bean is found.
+     */
+    public static BeanReference resolve(BeanManager beanManager, Type type) {
+        Bean<?> bean = beanManager.resolve(beanManager.getBeans(type, Any.Literal.INSTANCE));
+        if (bean == null) {
+            throw new UnsatisfiedResolutionException("Unable to resolve a bean for: " + type);
+        }
+        return new BeanReference(beanManager, bean, type);
+    }
+
+    /**
+     * Get the bean.
+     *
+     * @return the bean.
+     */
+    public Bean<?> getBean() {
+        return bean;
+    }
+
+    /**
+     * Get the bean instance.
+     *
+     * @param facesContext the Faces context.
+     * @return the bean instance.
+     */
+    public Object get(FacesContext facesContext) {
+        if (clientProxy != null) {
+            return clientProxy;
+        }
+        return createDependent(bean, facesContext);
+    }
+
+    /**
+     * Create a dependent instance and track it for release.
+     *
+     * @param <T> the type of the bean.
+     * @param bean the bean.
+     * @param facesContext the Faces context.
+     * @return the dependent instance.
+     */
+    private <T> T createDependent(Bean<T> bean, FacesContext facesContext) {
+        CreationalContext<T> creationalContext = beanManager.createCreationalContext(bean);
+        @SuppressWarnings("unchecked")
+        T instance = (T) beanManager.getReference(bean, type, creationalContext);
+        Map<Object, Object> attributes = facesContext.getAttributes();
+        @SuppressWarnings("unchecked")
+        ArrayList<Runnable> dependents = (ArrayList<Runnable>) attributes.get(DEPENDENTS);
+        if (dependents == null) {
+            dependents = new ArrayList<>(2);
+            attributes.put(DEPENDENTS, dependents);
+        }
+        dependents.add(() -> bean.destroy(instance, creationalContext));
+        return instance;
+    }
+
+    /**
+     * Detach the dependent instances created for the given Faces context.
+     *
+     * <p>
+     * This is used when the bean instance outlives the Faces context, e.g.
+     * when the method is invoked on another thread. The returned Runnable
+     * releases (destroys) the dependent instances.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @return the Runnable releasing the dependent instances.
+     */
+    @SuppressWarnings("unchecked")
+    public static Runnable detach(FacesContext facesContext) {
+        ArrayList<Runnable> dependents = (ArrayList<Runnable>) facesContext.getAttributes().remove(DEPENDENTS);
+        if (dependents == null) {
+            return () -> {
+            };
+        }
+        return () -> dependents.forEach(Runnable::run);
+    }
+
+    /**
+     * Get the contextual instance.
+     *
+     * <p>
+     * Unlike {@link #get(FacesContext)} this does not return the client proxy
+     * of a normal scoped bean, but the contextual instance itself. It can be
+     * used on a thread where the context of the bean is not active.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @return the contextual instance.
+     */
+    public Object getContextualInstance(FacesContext facesContext) {
+        if (clientProxy == null) {
+            return get(facesContext);
+        }
+        return getContextualInstance(bean);
+    }
+
+    /**
+     * Get the contextual instance of a normal scoped bean.
+     *
+     * @param <T> the type of the bean.
+     * @param bean the bean.
+     * @return the contextual instance.
+     */
+    private <T> T getContextualInstance(Bean<T> bean) {
+        return beanManager.getContext(bean.getScope()).get(bean, beanManager.createCreationalContext(bean));
+    }
+
+    /**
+     * Is the bean bound to the request.
+     *
+     * <p>
+     * A bean is bound to the request if it, or any bean reachable through
+     * its injection points (or through the given additional types, e.g. the
+     * bean parameters of a method), has a normal scope other than
+     * &#64;ApplicationScoped. Such beans (e.g. &#64;RequestScoped,
+     * &#64;SessionScoped or &#64;ConversationScoped beans, or the Faces
+     * context itself) can only be used on the thread the request runs on.
+     * Beans looked up programmatically (e.g. through Instance) are not
+     * detected.
+     * </p>
+     *
+     * @param beanManager the bean manager.
+     * @param bean the bean.
+     * @param types the additional types.
+     * @return true if it is, false otherwise.
+     */
+    public static boolean isRequestBound(BeanManager beanManager, Bean<?> bean, Type... types) {
+        HashSet<Bean<?>> visited = new HashSet<>();
+        if (isRequestBound(beanManager, bean, visited)) {
+            return true;
+        }
+        for (Type type : types) {
+            Bean<?> resolved = resolveBean(beanManager, type, Any.Literal.INSTANCE);
+            if (resolved != null && isRequestBound(beanManager, resolved, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Is the bean, or any bean reachable through its injection points, bound
+     * to the request.
+     *
+     * @param beanManager the bean manager.
+     * @param bean the bean.
+     * @param visited the beans already visited.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isRequestBound(BeanManager beanManager, Bean<?> bean, Set<Bean<?>> visited) {
+        if (!visited.add(bean)) {
+            return false;
+        }
+        if (beanManager.isNormalScope(bean.getScope()) && !ApplicationScoped.class.equals(bean.getScope())) {
+            return true;
+        }
+        for (InjectionPoint injectionPoint : bean.getInjectionPoints()) {
+            Bean<?> injected = resolveBean(beanManager, injectionPoint.getType(),
+                    injectionPoint.getQualifiers().toArray(new Annotation[0]));
+            if (injected != null && isRequestBound(beanManager, injected, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolve the bean for the given type and qualifiers.
+     *
+     * @param beanManager the bean manager.
+     * @param type the type.
+     * @param qualifiers the qualifiers.
+     * @return the bean, or null if it cannot be resolved unambiguously.
+     */
+    private static Bean<?> resolveBean(BeanManager beanManager, Type type, Annotation... qualifiers) {
+        try {
+            return beanManager.resolve(beanManager.getBeans(type, qualifiers));
+        } catch (AmbiguousResolutionException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Release (destroy) the dependent instances created for the given Faces
+     * context.
+     *
+     * @param facesContext the Faces context.
+     */
+    public static void release(FacesContext facesContext) {
+        detach(facesContext).run();
+    }
+}
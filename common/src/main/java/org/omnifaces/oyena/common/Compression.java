@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import javax.annotation.PreDestroy;
+import javax.faces.context.ExternalContext;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The response compression.
+ *
+ * <p>
+ * When enabled responses are compressed with gzip or deflate (whichever the
+ * client prefers, gzip if it accepts both equally, see the Accept-Encoding
+ * request header). Responses smaller than the minimum size are sent
+ * uncompressed as compressing them does not pay off.
+ * </p>
+ *
+ * <p>
+ * The Deflaters are pooled so no native zlib state is allocated per request.
+ * The number of bytes going into and coming out of the compression are
+ * counted so the compression ratio can be monitored.
+ * </p>
+ *
+ * <p>
+ * It is shared by the Action and REST modules, which each configure it from
+ * their own context parameters.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class Compression {
+
+    /**
+     * Stores the maximum number of pooled Deflaters.
+     */
+    private static final int MAX_POOLED_DEFLATERS = 64;
+
+    /**
+     * Stores the bytes in counter.
+     */
+    private final LongAdder bytesIn = new LongAdder();
+
+    /**
+     * Stores the bytes out counter.
+     */
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * Stores the pooled Deflaters.
+     */
+    private final ArrayBlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    /**
+     * Stores the enabled flag.
+     */
+    private boolean enabled;
+
+    /**
+     * Stores the compression level.
+     */
+    private int level = 6;
+
+    /**
+     * Stores the minimum size.
+     */
+    private int minSize = 1024;
+
+    /**
+     * Acquire a Deflater.
+     *
+     * @return the Deflater.
+     */
+    public Deflater acquireDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    /**
+     * Configure the compression from the context parameters with the given
+     * prefix.
+     *
+     * <p>
+     * The context parameters are <code>COMPRESSION</code> (true or false),
+     * <code>COMPRESSION_LEVEL</code> (0-9, defaults to 6) and
+     * <code>COMPRESSION_MIN_SIZE</code> (defaults to 1024 bytes), each
+     * prefixed with the given prefix.
+     * </p>
+     *
+     * @param externalContext the external context.
+     * @param prefix the context parameter prefix, e.g. "org.omnifaces.oyena.rest.".
+     */
+    protected void configure(ExternalContext externalContext, String prefix) {
+        String level = externalContext.getInitParameter(prefix + "COMPRESSION_LEVEL");
+        String minSize = externalContext.getInitParameter(prefix + "COMPRESSION_MIN_SIZE");
+        configure(Boolean.parseBoolean(externalContext.getInitParameter(prefix + "COMPRESSION")),
+                level != null ? Integer.parseInt(level.trim()) : 6,
+                minSize != null ? Integer.parseInt(minSize.trim()) : 1024);
+    }
+
+    /**
+     * Configure the compression.
+     *
+     * @param enabled the enabled flag.
+     * @param level the compression level (0-9).
+     * @param minSize the minimum size.
+     */
+    protected void configure(boolean enabled, int level, int minSize) {
+        this.enabled = enabled;
+        this.level = Math.max(0, Math.min(9, level));
+        this.minSize = Math.max(0, minSize);
+    }
+
+    /**
+     * Destroy the pooled Deflaters.
+     */
+    @PreDestroy
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get the bytes in.
+     *
+     * @return the number of bytes that were compressed.
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Get the bytes out.
+     *
+     * @return the number of compressed bytes that were written.
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Get the minimum size.
+     *
+     * @return the minimum size.
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Is compression enabled.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Negotiate the content coding using the Accept-Encoding header.
+     *
+     * @param acceptEncoding the Accept-Encoding header.
+     * @return "gzip", "deflate" or null if neither is accepted.
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        if (acceptEncoding != null) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                double quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2).trim());
+                        } catch (NumberFormatException nfe) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzip = Math.max(gzip, quality);
+                } else if (name.equals("deflate")) {
+                    deflate = Math.max(deflate, quality);
+                } else if (name.equals("*")) {
+                    any = Math.max(any, quality);
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        }
+        return deflate > 0 ? "deflate" : null;
+    }
+
+    /**
+     * Record the bytes going into and coming out of the compression.
+     *
+     * @param in the bytes in.
+     * @param out the bytes out.
+     */
+    public void record(long in, long out) {
+        bytesIn.add(in);
+        bytesOut.add(out);
+    }
+
+    /**
+     * Release a Deflater.
+     *
+     * @param deflater the Deflater.
+     */
+    public void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Start compressing the response.
+     *
+     * <p>
+     * If compression applies the response of the external context is replaced
+     * by a compression response, which must be finished once the response has
+     * been written.
+     * </p>
+     *
+     * @param externalContext the external context.
+     * @return the compression response, or null if compression does not apply.
+     */
+    public CompressionResponse start(ExternalContext externalContext) {
+        CompressionResponse result = null;
+        if (enabled && externalContext.getResponse() instanceof HttpServletResponse) {
+            externalContext.addResponseHeader("Vary", "Accept-Encoding");
+            String encoding = negotiateEncoding(externalContext.getRequestHeaderMap().get("Accept-Encoding"));
+            if (encoding != null) {
+                result = new CompressionResponse(
+                        (HttpServletResponse) externalContext.getResponse(), this, encoding);
+                externalContext.setResponse(result);
+            }
+        }
+        return result;
+    }
+}
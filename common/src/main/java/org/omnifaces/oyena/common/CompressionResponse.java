@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * The compression response.
+ *
+ * <p>
+ * This response wrapper holds back the first bytes of the response until the
+ * minimum size of the compression is reached. If the response turns out
+ * to be smaller it is written out uncompressed with an exact Content-Length,
+ * otherwise it is compressed (gzip or deflate) with a pooled Deflater as it
+ * is written. The Deflater produces raw deflate data, the gzip or zlib (for
+ * deflate) header and trailer are written by this response.
+ * </p>
+ *
+ * <p>
+ * Flushing the output stream only flushes once compressing. An explicit
+ * {@link #flushBuffer()} starts compressing whatever is held back and flushes
+ * the Deflater, so the client receives everything written so far.
+ * </p>
+ *
+ * <p>
+ * Writes to the underlying response are blocking, so the output stream is
+ * always ready. A WriteListener is told so right away.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class CompressionResponse extends HttpServletResponseWrapper {
+
+    /**
+     * Stores the compressed bytes buffer size.
+     */
+    private static final int DEFLATED_BUFFER_SIZE = 8192;
+
+    /**
+     * Stores the gzip header (no file name, no modification time).
+     */
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * Stores the zlib header (deflate, 32K window, no dictionary).
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+
+    /**
+     * Stores the compression.
+     */
+    private final Compression compression;
+
+    /**
+     * Stores the content coding ("gzip" or "deflate").
+     */
+    private final String encoding;
+
+    /**
+     * Stores the output stream.
+     */
+    private CompressionOutputStream outputStream;
+
+    /**
+     * Stores the writer.
+     */
+    private PrintWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param response the response.
+     * @param compression the compression.
+     * @param encoding the content coding ("gzip" or "deflate").
+     */
+    public CompressionResponse(HttpServletResponse response, Compression compression, String encoding) {
+        super(response);
+        this.compression = compression;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Finish the response.
+     *
+     * <p>
+     * This writes out what is still held back (compressed or not) and returns
+     * the Deflater to the pool.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flushToClient();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressionOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new CompressionOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    /**
+     * Release the Deflater (if any) without finishing the response.
+     *
+     * <p>
+     * This is used when writing the response failed.
+     * </p>
+     */
+    public void release() {
+        if (outputStream != null) {
+            outputStream.release();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (outputStream != null) {
+            outputStream.resetBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (outputStream != null) {
+            outputStream.resetBuffer();
+        }
+    }
+
+    /**
+     * The Content-Length is determined by this response.
+     *
+     * @param length the ignored length.
+     */
+    @Override
+    public void setContentLength(int length) {
+    }
+
+    /**
+     * The Content-Length is determined by this response.
+     *
+     * @param length the ignored length.
+     */
+    @Override
+    public void setContentLengthLong(long length) {
+    }
+
+    /**
+     * The output stream that compresses once the minimum size is reached.
+     */
+    private class CompressionOutputStream extends ServletOutputStream {
+
+        /**
+         * Stores the held back bytes.
+         */
+        private final byte[] buffer = new byte[compression.getMinSize()];
+
+        /**
+         * Stores the number of held back bytes.
+         */
+        private int count;
+
+        /**
+         * Stores the checksum of the uncompressed bytes (CRC32 for gzip,
+         * Adler32 for deflate).
+         */
+        private final Checksum checksum = "gzip".equals(encoding) ? new CRC32() : new Adler32();
+
+        /**
+         * Stores the compressed bytes buffer.
+         */
+        private byte[] deflated;
+
+        /**
+         * Stores the Deflater (or null if not compressing).
+         */
+        private Deflater deflater;
+
+        /**
+         * Stores the finished flag.
+         */
+        private boolean finished;
+
+        /**
+         * Stores the number of uncompressed bytes.
+         */
+        private long in;
+
+        /**
+         * Stores the number of compressed bytes.
+         */
+        private long out;
+
+        /**
+         * Stores the response output stream.
+         */
+        private ServletOutputStream responseOutputStream;
+
+        /**
+         * Deflate the input until the Deflater needs more.
+         *
+         * @param flush the flush mode.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void deflate(int flush) throws IOException {
+            int length;
+            while ((length = deflater.deflate(deflated, 0, deflated.length, flush)) > 0) {
+                responseOutputStream.write(deflated, 0, length);
+                out += length;
+                if (length < deflated.length) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Finish the stream.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (deflater == null) {
+                if (count > 0) {
+                    CompressionResponse.super.setContentLength(count);
+                    ServletOutputStream output = CompressionResponse.super.getOutputStream();
+                    output.write(buffer, 0, count);
+                    count = 0;
+                }
+                return;
+            }
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(deflated, 0, deflated.length);
+                    responseOutputStream.write(deflated, 0, length);
+                    out += length;
+                }
+                if ("gzip".equals(encoding)) {
+                    writeIntLittleEndian((int) checksum.getValue());
+                    writeIntLittleEndian((int) in);
+                } else {
+                    writeIntBigEndian((int) checksum.getValue());
+                }
+                compression.record(in, out);
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (deflater != null && !finished) {
+                deflate(Deflater.SYNC_FLUSH);
+                responseOutputStream.flush();
+            }
+        }
+
+        /**
+         * Start compressing (if needed) and flush the Deflater.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        private void flushToClient() throws IOException {
+            if (deflater == null && !finished && count > 0) {
+                start();
+            }
+            flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /**
+         * Release the Deflater.
+         */
+        private void release() {
+            if (deflater != null) {
+                compression.releaseDeflater(deflater);
+                deflater = null;
+            }
+            finished = true;
+        }
+
+        /**
+         * Drop the held back bytes.
+         */
+        private void resetBuffer() {
+            if (deflater == null) {
+                count = 0;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException ioe) {
+                writeListener.onError(ioe);
+            }
+        }
+
+        /**
+         * Start compressing, the held back bytes are compressed first.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        private void start() throws IOException {
+            setHeader("Content-Encoding", encoding);
+            responseOutputStream = CompressionResponse.super.getOutputStream();
+            byte[] header = "gzip".equals(encoding) ? GZIP_HEADER : ZLIB_HEADER;
+            responseOutputStream.write(header);
+            out = header.length;
+            deflater = compression.acquireDeflater();
+            deflated = new byte[DEFLATED_BUFFER_SIZE];
+            update(buffer, 0, count);
+            count = 0;
+        }
+
+        /**
+         * Feed the bytes to the Deflater.
+         *
+         * @param bytes the bytes.
+         * @param offset the offset.
+         * @param length the length.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void update(byte[] bytes, int offset, int length) throws IOException {
+            checksum.update(bytes, offset, length);
+            in += length;
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                int size = deflater.deflate(deflated, 0, deflated.length);
+                responseOutputStream.write(deflated, 0, size);
+                out += size;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (deflater == null && !finished && count < buffer.length) {
+                buffer[count++] = (byte) b;
+            } else {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IOException("Stream closed");
+            }
+            if (deflater == null) {
+                if (count + length <= compression.getMinSize()) {
+                    System.arraycopy(bytes, offset, buffer, count, length);
+                    count += length;
+                    return;
+                }
+                start();
+            }
+            update(bytes, offset, length);
+        }
+
+        /**
+         * Write an int in big endian order (as required by zlib).
+         *
+         * @param value the value.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void writeIntBigEndian(int value) throws IOException {
+            responseOutputStream.write(new byte[]{(byte) (value >> 24), (byte) (value >> 16),
+                (byte) (value >> 8), (byte) value});
+            out += 4;
+        }
+
+        /**
+         * Write an int in little endian order (as required by gzip).
+         *
+         * @param value the value.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void writeIntLittleEndian(int value) throws IOException {
+            responseOutputStream.write(new byte[]{(byte) value, (byte) (value >> 8),
+                (byte) (value >> 16), (byte) (value >> 24)});
+            out += 4;
+        }
+    }
+}
@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import javax.faces.FacesException;
+
+/**
+ * The method invoker.
+ *
+ * <p>
+ * A method invoker is created once for a method and invokes it without using
+ * reflection. If the method, its declaring class and the types in its
+ * signature are public and visible from this class, and the method is a non
+ * static, non void method with up to 4 parameters, a class implementing one
+ * of the arity specific interfaces below is spun with LambdaMetafactory. That
+ * class calls the method directly, so the JIT treats the call like any other
+ * virtual call and can inline it.
+ * </p>
+ *
+ * <p>
+ * Otherwise the method is invoked through a method handle. Methods with up to
+ * 4 parameters are invoked with an exact invocation of the method handle, so
+ * no argument spreading is needed.
+ * </p>
+ *
+ * <p>
+ * It is shared by the Action and REST modules.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public abstract class MethodInvoker {
+
+    /**
+     * Create the method invoker for the given method.
+     *
+     * @param method the method.
+     * @return the method invoker.
+     */
+    public static MethodInvoker create(Method method) {
+        MethodInvoker invoker = createLambda(method);
+        return invoker != null ? invoker : createHandle(method);
+    }
+
+    /**
+     * Create the method invoker using a method handle.
+     *
+     * @param method the method.
+     * @return the method invoker.
+     */
+    private static MethodInvoker createHandle(Method method) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException iae) {
+            try {
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new FacesException("Unable to access method: " + method, e);
+            }
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        int parameterCount = method.getParameterCount();
+        handle = handle.asType(MethodType.genericMethodType(parameterCount + 1));
+        switch (parameterCount) {
+            case 0:
+                return new Arity0(handle);
+            case 1:
+                return new Arity1(handle);
+            case 2:
+                return new Arity2(handle);
+            case 3:
+                return new Arity3(handle);
+            case 4:
+                return new Arity4(handle);
+            default:
+                return new ArityN(handle.asSpreader(Object[].class, parameterCount));
+        }
+    }
+
+    /**
+     * Create the method invoker using LambdaMetafactory.
+     *
+     * @param method the method.
+     * @return the method invoker, or null if the method cannot be bound that
+     * way.
+     */
+    private static MethodInvoker createLambda(Method method) {
+        int parameterCount = method.getParameterCount();
+        if (parameterCount > 4 || Modifier.isStatic(method.getModifiers())
+                || !Modifier.isPublic(method.getModifiers())
+                || method.getReturnType() == void.class
+                || !isVisible(method.getDeclaringClass())
+                || !isVisible(method.getReturnType())) {
+            return null;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return null;
+            }
+        }
+        Class<?> functionType;
+        switch (parameterCount) {
+            case 0:
+                functionType = Function0.class;
+                break;
+            case 1:
+                functionType = Function1.class;
+                break;
+            case 2:
+                functionType = Function2.class;
+                break;
+            case 3:
+                functionType = Function3.class;
+                break;
+            default:
+                functionType = Function4.class;
+                break;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(functionType),
+                    MethodType.genericMethodType(parameterCount + 1),
+                    handle, handle.type().wrap());
+            Object function = callSite.getTarget().invoke();
+            switch (parameterCount) {
+                case 0:
+                    return new Lambda0((Function0) function);
+                case 1:
+                    return new Lambda1((Function1) function);
+                case 2:
+                    return new Lambda2((Function2) function);
+                case 3:
+                    return new Lambda3((Function3) function);
+                default:
+                    return new Lambda4((Function4) function);
+            }
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+
+    /**
+     * Invoke the method.
+     *
+     * @param instance the bean instance.
+     * @param parameters the parameters.
+     * @return the result.
+     * @throws Throwable when the method throws.
+     */
+    public abstract Object invoke(Object instance, Object[] parameters) throws Throwable;
+
+    /**
+     * Is the type accessible from, and loadable by, the class spun by
+     * LambdaMetafactory.
+     *
+     * @param type the type.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        if (type.getClassLoader() == null) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, MethodInvoker.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The function for methods without parameters.
+     */
+    interface Function0 {
+
+        /**
+         * Apply the function.
+         *
+         * @param instance the bean instance.
+         * @return the result.
+         */
+        Object apply(Object instance);
+    }
+
+    /**
+     * The function for methods with 1 parameter.
+     */
+    interface Function1 {
+
+        /**
+         * Apply the function.
+         *
+         * @param instance the bean instance.
+         * @param p0 the 1st parameter.
+         * @return the result.
+         */
+        Object apply(Object instance, Object p0);
+    }
+
+    /**
+     * The function for methods with 2 parameters.
+     */
+    interface Function2 {
+
+        /**
+         * Apply the function.
+         *
+         * @param instance the bean instance.
+         * @param p0 the 1st parameter.
+         * @param p1 the 2nd parameter.
+         * @return the result.
+         */
+        Object apply(Object instance, Object p0, Object p1);
+    }
+
+    /**
+     * The function for methods with 3 parameters.
+     */
+    interface Function3 {
+
+        /**
+         * Apply the function.
+         *
+         * @param instance the bean instance.
+         * @param p0 the 1st parameter.
+         * @param p1 the 2nd parameter.
+         * @param p2 the 3rd parameter.
+         * @return the result.
+         */
+        Object apply(Object instance, Object p0, Object p1, Object p2);
+    }
+
+    /**
+     * The function for methods with 4 parameters.
+     */
+    interface Function4 {
+
+        /**
+         * Apply the function.
+         *
+         * @param instance the bean instance.
+         * @param p0 the 1st parameter.
+         * @param p1 the 2nd parameter.
+         * @param p2 the 3rd parameter.
+         * @param p3 the 4th parameter.
+         * @return the result.
+         */
+        Object apply(Object instance, Object p0, Object p1, Object p2, Object p3);
+    }
+
+    /**
+     * The invoker for methods without parameters (LambdaMetafactory).
+     */
+    private static final class Lambda0 extends MethodInvoker {
+
+        /**
+         * Stores the function.
+         */
+        private final Function0 function;
+
+        /**
+         * Constructor.
+         *
+         * @param function the function.
+         */
+        private Lambda0(Function0 function) {
+            this.function = function;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) {
+            return function.apply(instance);
+        }
+    }
+
+    /**
+     * The invoker for methods with 1 parameter (LambdaMetafactory).
+     */
+    private static final class Lambda1 extends MethodInvoker {
+
+        /**
+         * Stores the function.
+         */
+        private final Function1 function;
+
+        /**
+         * Constructor.
+         *
+         * @param function the function.
+         */
+        private Lambda1(Function1 function) {
+            this.function = function;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) {
+            return function.apply(instance, parameters[0]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 2 parameters (LambdaMetafactory).
+     */
+    private static final class Lambda2 extends MethodInvoker {
+
+        /**
+         * Stores the function.
+         */
+        private final Function2 function;
+
+        /**
+         * Constructor.
+         *
+         * @param function the function.
+         */
+        private Lambda2(Function2 function) {
+            this.function = function;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) {
+            return function.apply(instance, parameters[0], parameters[1]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 3 parameters (LambdaMetafactory).
+     */
+    private static final class Lambda3 extends MethodInvoker {
+
+        /**
+         * Stores the function.
+         */
+        private final Function3 function;
+
+        /**
+         * Constructor.
+         *
+         * @param function the function.
+         */
+        private Lambda3(Function3 function) {
+            this.function = function;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) {
+            return function.apply(instance, parameters[0], parameters[1], parameters[2]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 4 parameters (LambdaMetafactory).
+     */
+    private static final class Lambda4 extends MethodInvoker {
+
+        /**
+         * Stores the function.
+         */
+        private final Function4 function;
+
+        /**
+         * Constructor.
+         *
+         * @param function the function.
+         */
+        private Lambda4(Function4 function) {
+            this.function = function;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) {
+            return function.apply(instance, parameters[0], parameters[1], parameters[2], parameters[3]);
+        }
+    }
+
+    /**
+     * The invoker for methods without parameters.
+     */
+    private static final class Arity0 extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the method handle.
+         */
+        private Arity0(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance);
+        }
+    }
+
+    /**
+     * The invoker for methods with 1 parameter.
+     */
+    private static final class Arity1 extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the method handle.
+         */
+        private Arity1(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance, parameters[0]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 2 parameters.
+     */
+    private static final class Arity2 extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the method handle.
+         */
+        private Arity2(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance, parameters[0], parameters[1]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 3 parameters.
+     */
+    private static final class Arity3 extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the method handle.
+         */
+        private Arity3(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance, parameters[0], parameters[1], parameters[2]);
+        }
+    }
+
+    /**
+     * The invoker for methods with 4 parameters.
+     */
+    private static final class Arity4 extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the method handle.
+         */
+        private Arity4(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance, parameters[0], parameters[1], parameters[2], parameters[3]);
+        }
+    }
+
+    /**
+     * The invoker for methods with more than 4 parameters.
+     */
+    private static final class ArityN extends MethodInvoker {
+
+        /**
+         * Stores the method handle.
+         */
+        private final MethodHandle handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the (spreading) method handle.
+         */
+        private ArityN(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object instance, Object[] parameters) throws Throwable {
+            return handle.invokeExact(instance, parameters);
+        }
+    }
+}
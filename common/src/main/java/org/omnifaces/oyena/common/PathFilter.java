@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The path filter.
+ *
+ * <p>
+ * The path filter is a cheap pre-filter that rejects a path info that cannot
+ * match any of a set of routes, so requests for random paths (e.g. from
+ * scanners) never reach the regular expressions of a route table. It is a
+ * character trie of the literal prefixes of the routes and accepts a path info
+ * as soon as it starts with one of them.
+ * </p>
+ *
+ * <p>
+ * If any of the routes has an empty literal prefix every path info could
+ * match, in which case the filter accepts everything.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class PathFilter {
+
+    /**
+     * Stores the accept all flag.
+     */
+    private final boolean acceptAll;
+
+    /**
+     * Stores the root of the literal prefix trie.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Constructor.
+     *
+     * @param prefixes the literal prefixes.
+     */
+    public PathFilter(Collection<String> prefixes) {
+        boolean empty = false;
+        for (String prefix : prefixes) {
+            if (prefix.isEmpty()) {
+                empty = true;
+            }
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+            }
+            node.terminal = true;
+        }
+        this.acceptAll = empty;
+    }
+
+    /**
+     * Is the filter accepting every path info.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isAcceptAll() {
+        return acceptAll;
+    }
+
+    /**
+     * Can the path info match any of the literal prefixes.
+     *
+     * @param pathInfo the path info.
+     * @return true if it can, false if it can never match.
+     */
+    public boolean mayMatch(String pathInfo) {
+        if (acceptAll) {
+            return true;
+        }
+        Node node = root;
+        for (int i = 0; i < pathInfo.length(); i++) {
+            node = node.children.get(pathInfo.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A node in the literal prefix trie.
+     */
+    private static class Node {
+
+        /**
+         * Stores the children.
+         */
+        private final Map<Character, Node> children = new HashMap<>();
+
+        /**
+         * Stores the terminal flag (a literal prefix ends at this node).
+         */
+        private boolean terminal;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * The route cache.
+ *
+ * <p>
+ * The route cache is a bounded, least recently used, cache from a key derived
+ * from the request to the mapping match it resolved to. For the small set of
+ * hot URLs that make up most of the traffic this skips matching completely.
+ * </p>
+ *
+ * <p>
+ * The cache is split into segments that are each guarded by their own lock so
+ * concurrent requests for different URLs rarely contend. Only successful
+ * matches are cached and keys longer than the maximum key length are never
+ * cached, so requests for unique (hostile) URLs cannot pollute the cache.
+ * </p>
+ *
+ * <p>
+ * As mapping matches are mutable a cached match is never handed out itself,
+ * the copier given to the constructor is used to copy it on the way in and on
+ * the way out.
+ * </p>
+ *
+ * <p>
+ * It is shared by the Action and REST modules.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <K> the type of the key.
+ * @param <V> the type of the mapping match.
+ */
+public class RouteCache<K extends CharSequence, V> {
+
+    /**
+     * Stores the number of segments.
+     */
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * Stores the copier.
+     */
+    private final UnaryOperator<V> copier;
+
+    /**
+     * Stores the hit counter.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Stores the maximum key length.
+     */
+    private final int maxKeyLength;
+
+    /**
+     * Stores the miss counter.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Stores the segments.
+     */
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Stores the size.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param size the maximum number of entries.
+     * @param maxKeyLength the maximum key length.
+     * @param copier the copier of the mapping match.
+     */
+    @SuppressWarnings("unchecked")
+    public RouteCache(int size, int maxKeyLength, UnaryOperator<V> copier) {
+        this.size = size;
+        this.maxKeyLength = maxKeyLength;
+        this.copier = copier;
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENT_COUNT];
+        int segmentSize = Math.max(1, (size + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentSize);
+        }
+    }
+
+    /**
+     * Get the mapping match for the given key.
+     *
+     * @param key the key.
+     * @return the mapping match, or null if not cached.
+     */
+    public V get(K key) {
+        if (key == null || key.length() > maxKeyLength) {
+            return null;
+        }
+        V match = getSegment(key).get(key);
+        if (match != null) {
+            hits.increment();
+            return copier.apply(match);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Get the number of hits.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the maximum key length.
+     *
+     * @return the maximum key length.
+     */
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    /**
+     * Get the number of misses.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the segment for the given key.
+     *
+     * @param key the key.
+     * @return the segment.
+     */
+    private Segment<K, V> getSegment(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Get the size.
+     *
+     * @return the maximum number of entries.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Put the mapping match for the given key.
+     *
+     * @param key the key.
+     * @param match the mapping match.
+     */
+    public void put(K key, V match) {
+        if (match != null && key != null && key.length() <= maxKeyLength) {
+            getSegment(key).put(key, copier.apply(match));
+        }
+    }
+
+    /**
+     * A segment of the cache.
+     *
+     * @param <K> the type of the key.
+     * @param <V> the type of the mapping match.
+     */
+    private static class Segment<K, V> {
+
+        /**
+         * Stores the entries (in access order).
+         */
+        private final LinkedHashMap<K, V> entries;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity the capacity.
+         */
+        private Segment(int capacity) {
+            entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        /**
+         * Get the entry.
+         *
+         * @param key the key.
+         * @return the mapping match, or null if not found.
+         */
+        private synchronized V get(K key) {
+            return entries.get(key);
+        }
+
+        /**
+         * Put the entry.
+         *
+         * @param key the key.
+         * @param match the mapping match.
+         */
+        private synchronized void put(K key, V match) {
+            entries.put(key, match);
+        }
+    }
+}
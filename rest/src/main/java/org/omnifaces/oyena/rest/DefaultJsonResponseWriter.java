@@ -26,17 +26,42 @@
  */
 package org.omnifaces.oyena.rest;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.BaseStream;
 import javax.enterprise.context.ApplicationScoped;
 import javax.faces.FacesException;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
 import javax.json.bind.Jsonb;
 import javax.json.bind.JsonbBuilder;
 
 /**
  * The JSON (application/json) response writer.
  *
+ * <p>
+ * The result is serialized incrementally in UTF-8 into a pooled buffer (see
+ * the REST response buffer pool). If the JSON fits the buffer it is written
+ * out with an exact Content-Length, otherwise it is streamed to the response
+ * whenever the buffer is full. Either way the memory used per request is
+ * bounded by the buffer size and not by the size of the payload.
+ * </p>
+ *
+ * <p>
+ * If the result is a Stream, an Iterator, a Spliterator or an Iterable that is
+ * not a Collection it is written as a JSON array one element at a time, so
+ * the elements never have to be in memory all at once. The source is closed
+ * (if it is AutoCloseable) when it is exhausted or when writing fails, for
+ * example because the client disconnected.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
@@ -52,6 +77,12 @@ public class DefaultJsonResponseWriter implements RestResponseWriter {
      * Stores the JSON-B context.
      */
     private Jsonb jsonb;
+
+    /**
+     * Stores the response buffer pool.
+     */
+    @Inject
+    private RestResponseBufferPool responseBufferPool;
     
     /**
      * Constructor.
@@ -60,7 +91,7 @@ public class DefaultJsonResponseWriter implements RestResponseWriter {
         jsonbBuilder = JsonbBuilder.newBuilder();
         jsonb = jsonbBuilder.build();
     }
-    
+
     /**
      * Write the response.
      *
@@ -78,14 +109,116 @@ public class DefaultJsonResponseWriter implements RestResponseWriter {
                 throw new FacesException(ioe);
             }
         } else {
-            try { 
-               Writer writer = facesContext.getExternalContext().getResponseOutputWriter();
-                writer.write(jsonb.toJson(result));
-                writer.flush();
+            byte[] buffer = responseBufferPool.acquire();
+            try {
+                ExternalContext externalContext = facesContext.getExternalContext();
+                externalContext.setResponseCharacterEncoding("UTF-8");
+                OutputStream outputStream = new RestResponseOutputStream(externalContext, buffer);
+                Iterator<?> iterator = toIterator(result);
+                if (iterator != null) {
+                    writeArray(result, iterator, outputStream);
+                } else {
+                    jsonb.toJson(result, outputStream);
+                }
+                outputStream.close();
                 facesContext.responseComplete();
             } catch (IOException ioe) {
                 throw new FacesException(ioe);
+            } finally {
+                responseBufferPool.release(buffer);
             }
         }
     }
+
+    /**
+     * Get an Iterator over the elements of a streamable result.
+     *
+     * @param result the result.
+     * @return the Iterator, or null if the result is not a Stream, an
+     * Iterator, a Spliterator or an Iterable that is not a Collection.
+     */
+    static Iterator<?> toIterator(Object result) {
+        if (result instanceof BaseStream) {
+            return ((BaseStream<?, ?>) result).iterator();
+        } else if (result instanceof Iterator) {
+            return (Iterator<?>) result;
+        } else if (result instanceof Spliterator) {
+            return Spliterators.iterator((Spliterator<?>) result);
+        } else if (result instanceof Iterable && !(result instanceof Collection)) {
+            return ((Iterable<?>) result).iterator();
+        }
+        return null;
+    }
+
+    /**
+     * Write the elements as a JSON array.
+     *
+     * @param source the source of the elements.
+     * @param iterator the Iterator over the elements.
+     * @param outputStream the output stream.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeArray(Object source, Iterator<?> iterator, OutputStream outputStream) throws IOException {
+        OutputStream elementOutputStream = new ElementOutputStream(outputStream);
+        try {
+            outputStream.write('[');
+            boolean first = true;
+            while (iterator.hasNext()) {
+                if (!first) {
+                    outputStream.write(',');
+                }
+                first = false;
+                Object element = iterator.next();
+                if (element != null) {
+                    jsonb.toJson(element, elementOutputStream);
+                } else {
+                    outputStream.write("null".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            outputStream.write(']');
+        } finally {
+            if (source instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) source).close();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new FacesException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The output stream for a single element.
+     *
+     * <p>
+     * JSON-B flushes and closes the output stream after every element, which
+     * is ignored here so the elements end up in the same response buffer.
+     * </p>
+     */
+    private static class ElementOutputStream extends FilterOutputStream {
+
+        /**
+         * Constructor.
+         *
+         * @param outputStream the output stream.
+         */
+        private ElementOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+    }
 }
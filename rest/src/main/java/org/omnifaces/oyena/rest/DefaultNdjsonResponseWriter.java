@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.faces.FacesException;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+
+/**
+ * The NDJSON (application/x-ndjson) response writer.
+ *
+ * <p>
+ * If the result is a Stream, an Iterator, a Spliterator or an Iterable each
+ * element is written as one line of JSON, any other result is written as a
+ * single line. The lines go through a pooled buffer (see the REST response
+ * buffer pool) which is flushed to the client after every
+ * <code>org.omnifaces.oyena.rest.NDJSON_FLUSH_RECORDS</code> lines (defaults
+ * to 100) or <code>org.omnifaces.oyena.rest.NDJSON_FLUSH_BYTES</code> bytes
+ * (defaults to 4096), whichever comes first, so clients can start processing
+ * before the result is complete. Setting either to 0 disables it. A result
+ * that is written completely before the first flush is sent with an exact
+ * Content-Length. As this writer is streaming the response is neither
+ * compressed nor given an ETag.
+ * </p>
+ *
+ * <p>
+ * The source is closed (if it is AutoCloseable) when it is exhausted or when
+ * writing fails, for example because the client disconnected.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ApplicationScoped
+@RestResponseWriterContentType("application/x-ndjson")
+public class DefaultNdjsonResponseWriter implements RestResponseWriter {
+
+    /**
+     * Stores the flush bytes context parameter name.
+     */
+    public static final String NDJSON_FLUSH_BYTES_PARAM_NAME
+            = "org.omnifaces.oyena.rest.NDJSON_FLUSH_BYTES";
+
+    /**
+     * Stores the flush records context parameter name.
+     */
+    public static final String NDJSON_FLUSH_RECORDS_PARAM_NAME
+            = "org.omnifaces.oyena.rest.NDJSON_FLUSH_RECORDS";
+
+    /**
+     * Stores the number of bytes after which to flush.
+     */
+    private long flushBytes = 4096;
+
+    /**
+     * Stores the number of records after which to flush.
+     */
+    private long flushRecords = 100;
+
+    /**
+     * Stores the JSON-B context.
+     */
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    /**
+     * Stores the response buffer pool.
+     */
+    @Inject
+    private RestResponseBufferPool responseBufferPool;
+
+    /**
+     * Initialize the flush thresholds.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String bytes = externalContext.getInitParameter(NDJSON_FLUSH_BYTES_PARAM_NAME);
+            if (bytes != null) {
+                flushBytes = Long.parseLong(bytes.trim());
+            }
+            String records = externalContext.getInitParameter(NDJSON_FLUSH_RECORDS_PARAM_NAME);
+            if (records != null) {
+                flushRecords = Long.parseLong(records.trim());
+            }
+        }
+    }
+
+    /**
+     * Is the response writer streaming.
+     *
+     * @return true, as lines are flushed to the client while writing.
+     */
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Write the response.
+     *
+     * @param facesContext the Faces context.
+     */
+    @Override
+    public void writeResponse(FacesContext facesContext) {
+        Object result = facesContext.getAttributes().get(
+                RestLifecycle.class.getPackage().getName() + ".RestResult");
+        if (result == null) {
+            try {
+                facesContext.getExternalContext().responseSendError(204, "No content");
+                facesContext.responseComplete();
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            }
+        } else {
+            byte[] buffer = responseBufferPool.acquire();
+            try {
+                ExternalContext externalContext = facesContext.getExternalContext();
+                externalContext.setResponseCharacterEncoding("UTF-8");
+                RestResponseOutputStream outputStream = new RestResponseOutputStream(externalContext, buffer);
+                Iterator<?> iterator = result instanceof Iterable
+                        ? ((Iterable<?>) result).iterator() : DefaultJsonResponseWriter.toIterator(result);
+                if (iterator != null) {
+                    writeLines(result, iterator, outputStream);
+                } else {
+                    writeLine(result, new LineOutputStream(outputStream));
+                }
+                outputStream.close();
+                facesContext.responseComplete();
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            } finally {
+                responseBufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Write an element as a line.
+     *
+     * @param element the element.
+     * @param lineOutputStream the line output stream.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeLine(Object element, LineOutputStream lineOutputStream) throws IOException {
+        if (element != null) {
+            jsonb.toJson(element, lineOutputStream);
+        } else {
+            lineOutputStream.write(new byte[]{'n', 'u', 'l', 'l'});
+        }
+        lineOutputStream.write('\n');
+    }
+
+    /**
+     * Write the elements as lines.
+     *
+     * @param source the source of the elements.
+     * @param iterator the Iterator over the elements.
+     * @param outputStream the output stream.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeLines(Object source, Iterator<?> iterator,
+            RestResponseOutputStream outputStream) throws IOException {
+        LineOutputStream lineOutputStream = new LineOutputStream(outputStream);
+        long records = 0;
+        try {
+            while (iterator.hasNext()) {
+                writeLine(iterator.next(), lineOutputStream);
+                records++;
+                if ((flushRecords > 0 && records >= flushRecords)
+                        || (flushBytes > 0 && lineOutputStream.count >= flushBytes)) {
+                    outputStream.flushToClient();
+                    records = 0;
+                    lineOutputStream.count = 0;
+                }
+            }
+        } finally {
+            if (source instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) source).close();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new FacesException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The output stream for the lines.
+     *
+     * <p>
+     * It counts the bytes written since the last flush to the client, and it
+     * ignores the flush and close JSON-B does after every element.
+     * </p>
+     */
+    private static class LineOutputStream extends FilterOutputStream {
+
+        /**
+         * Stores the number of bytes written since the last flush.
+         */
+        private long count;
+
+        /**
+         * Constructor.
+         *
+         * @param outputStream the output stream.
+         */
+        private LineOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
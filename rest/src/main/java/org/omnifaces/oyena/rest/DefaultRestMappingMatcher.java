@@ -26,63 +26,103 @@
  */
 package org.omnifaces.oyena.rest;
 
-import java.util.Iterator;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.spi.AnnotatedMethod;
-import javax.enterprise.inject.spi.AnnotatedType;
-import javax.enterprise.inject.spi.Bean;
-import javax.enterprise.inject.spi.CDI;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import org.omnifaces.oyena.common.RouteCache;
 
 /**
  * The default REST mapping matcher.
  *
+ * <p>
+ * This matcher only consults the route table that was built by the REST
+ * extension during deployment, so the cost of matching depends on the number
+ * of REST routes and not on the number of beans.
+ * </p>
+ *
+ * <p>
+ * The route table walks a trie of the literal prefixes of the REST routes, so
+ * a path info that cannot match any REST route is rejected before any regular
+ * expression is evaluated. The number of requests that did not match any REST
+ * route is available through {@link #getRejectedCount()}.
+ * </p>
+ *
+ * <p>
+ * Optionally the matches of the most recently used URLs are kept in a bounded
+ * route cache so hot URLs skip matching completely. The route cache is enabled
+ * by setting the <code>org.omnifaces.oyena.rest.ROUTE_CACHE_SIZE</code>
+ * context parameter to the maximum number of entries. The
+ * <code>org.omnifaces.oyena.rest.ROUTE_CACHE_MAX_KEY_LENGTH</code> context
+ * parameter sets the length above which a key, the HTTP method and the path
+ * info separated by a space, is never cached (defaults to 256).
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestMappingMatcher implements RestMappingMatcher {
 
     /**
-     * Find the REST mapping for the given bean.
-     *
-     * @param facesContext the Faces context.
-     * @param bean the bean.
-     * @return the REST mapping match, or null if not found.
+     * Stores the route cache max key length context parameter name.
      */
-    private RestMappingMatch determineRestMappingMatch(FacesContext facesContext, Bean<?> bean) {
-        RestMappingMatch result = null;
-        Class clazz = bean.getBeanClass();
-        AnnotatedType annotatedType = CDI.current().getBeanManager().createAnnotatedType(clazz);
-        Set<AnnotatedMethod> annotatedMethodSet = annotatedType.getMethods();
-        for (AnnotatedMethod method : annotatedMethodSet) {
-            if (method.isAnnotationPresent(RestPath.class)) {
-                RestPath restPath = method.getAnnotation(RestPath.class);
-                String path = restPath.value();
-                String pathInfo = facesContext.getExternalContext().getRequestPathInfo();
-                if (Pattern.matches(path, pathInfo)) {
-                    result = new RestMappingMatch();
-                    result.setBean(bean);
-                    result.setMethod(method.getJavaMember());
-                    result.setPathInfo(pathInfo);
-                    result.setRestPath(path);
-                }
+    public static final String ROUTE_CACHE_MAX_KEY_LENGTH_PARAM_NAME
+            = "org.omnifaces.oyena.rest.ROUTE_CACHE_MAX_KEY_LENGTH";
+
+    /**
+     * Stores the route cache size context parameter name.
+     */
+    public static final String ROUTE_CACHE_SIZE_PARAM_NAME
+            = "org.omnifaces.oyena.rest.ROUTE_CACHE_SIZE";
+
+    /**
+     * Stores the rejected counter.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Stores the REST extension.
+     */
+    @Inject
+    private RestExtension restExtension;
+
+    /**
+     * Stores the route cache (or null if disabled).
+     */
+    private RouteCache<String, RestMappingMatch> routeCache;
+
+    /**
+     * Initialize the route cache.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String size = externalContext.getInitParameter(ROUTE_CACHE_SIZE_PARAM_NAME);
+            if (size != null && Integer.parseInt(size.trim()) > 0) {
+                String maxKeyLength = externalContext.getInitParameter(ROUTE_CACHE_MAX_KEY_LENGTH_PARAM_NAME);
+                routeCache = new RouteCache<>(Integer.parseInt(size.trim()),
+                        maxKeyLength != null ? Integer.parseInt(maxKeyLength.trim()) : 256,
+                        RestMappingMatch::new);
             }
         }
-        return result;
     }
 
     /**
-     * Get the beans.
+     * Get the HTTP methods that would have matched the request.
      *
-     * @return the beans.
+     * @param facesContext the Faces context.
+     * @return the allowed HTTP methods.
      */
-    private Iterator<Bean<?>> getBeans() {
-        Set<Bean<?>> beans = CDI.current().getBeanManager().getBeans(
-                Object.class, Any.Literal.INSTANCE);
-        return beans.iterator();
+    @Override
+    public Set<String> getAllowedMethods(FacesContext facesContext) {
+        return restExtension.getRouteTable().getAllowedMethods(
+                facesContext.getExternalContext().getRequestPathInfo());
     }
 
     /**
@@ -93,17 +133,44 @@ public class DefaultRestMappingMatcher implements RestMappingMatcher {
      */
     @Override
     public RestMappingMatch match(FacesContext facesContext) {
-        RestMappingMatch match = null;
-        Iterator<Bean<?>> beans = getBeans();
-        while (beans.hasNext()) {
-            Bean<?> bean = beans.next();
-            RestMappingMatch candidate = determineRestMappingMatch(facesContext, bean);
-            if (match == null) {
-                match = candidate;
-            } else if (candidate != null && candidate.getLength() > match.getLength()) {
-                match = candidate;
+        ExternalContext externalContext = facesContext.getExternalContext();
+        HttpServletRequest request = (HttpServletRequest) externalContext.getRequest();
+        String httpMethod = request.getMethod();
+        String pathInfo = externalContext.getRequestPathInfo();
+        RestRouteTable routeTable = restExtension.getRouteTable();
+        String key = null;
+        RestMappingMatch result = null;
+        if (routeCache != null) {
+            key = httpMethod + " " + pathInfo;
+            result = routeCache.get(key);
+            if (result != null) {
+                return result;
             }
         }
-        return match;
+        result = routeTable.match(httpMethod, pathInfo);
+        if (result == null) {
+            rejected.increment();
+        } else if (routeCache != null) {
+            routeCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of requests that did not match any REST route.
+     *
+     * @return the number of rejected requests.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the route cache.
+     *
+     * @return the route cache, or null if it is disabled.
+     */
+    public RouteCache<String, RestMappingMatch> getRouteCache() {
+        return routeCache;
     }
 }
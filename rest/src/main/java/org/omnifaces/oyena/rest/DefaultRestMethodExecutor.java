@@ -26,28 +26,105 @@
  */
 package org.omnifaces.oyena.rest;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
+import javax.enterprise.context.control.RequestContextController;
 import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.faces.FacesException;
 import javax.faces.context.FacesContext;
 import javax.inject.Inject;
+import org.omnifaces.oyena.common.BeanReference;
+import org.omnifaces.oyena.common.MethodInvoker;
 
 /**
  * The default REST method executor.
  *
+ * <p>
+ * Each REST method is analysed once into an array of REST parameter
+ * resolvers (its binding plan) so binding the parameters of a request does
+ * not need any reflection or annotation scanning. The method itself is invoked
+ * through a method invoker that is also created once per method, on a
+ * bean instance obtained from a bean reference that is resolved once per
+ * bean.
+ * </p>
+ *
+ * <p>
+ * If the REST method returns a CompletionStage the &#64;Dependent instances
+ * created for it are only destroyed once the CompletionStage completes.
+ * </p>
+ *
+ * <p>
+ * When a REST method is prepared for execution on another thread the
+ * parameters and the contextual instance of the bean are resolved on the
+ * calling thread. The method is then invoked with a request context activated
+ * on the executing thread, so request scoped beans used by the method resolve
+ * to instances of that (separate) request context, and there is no current
+ * Faces context. Methods using beans bound to the request are therefore never
+ * prepared, they are flagged to run on the container thread during
+ * deployment.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestMethodExecutor implements RestMethodExecutor {
 
+    /**
+     * Stores the bean references.
+     */
+    private final ConcurrentHashMap<Bean<?>, BeanReference> beanReferences = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
+
+    /**
+     * Stores the binding plans.
+     */
+    private final ConcurrentHashMap<Method, RestParameterResolver[]> bindingPlans = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the method invokers.
+     */
+    private final ConcurrentHashMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the request context controllers.
+     */
+    @Inject
+    private Instance<RequestContextController> requestContextControllers;
+
     /**
      * Stores the REST parameter producer.
      */
     @Inject
     private RestParameterProducer restParameterProducer;
 
+    /**
+     * Create the binding plan for the given method.
+     *
+     * @param method the method.
+     * @return the binding plan.
+     */
+    private RestParameterResolver[] createBindingPlan(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        RestParameterResolver[] resolvers = new RestParameterResolver[parameterTypes.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            resolvers[i] = restParameterProducer.createResolver(
+                    parameterTypes[i], parameterAnnotations[i]);
+        }
+        return resolvers;
+    }
+
     /**
      * Execute the method.
      *
@@ -56,24 +133,135 @@ public class DefaultRestMethodExecutor implements RestMethodExecutor {
      */
     @Override
     public Object execute(FacesContext facesContext, RestMappingMatch restMappingMatch) {
-        Instance instance = CDI.current().select(
-                restMappingMatch.getBean().getBeanClass(), Any.Literal.INSTANCE);
+        BeanReference beanReference = beanReferences.computeIfAbsent(
+                restMappingMatch.getBean(), bean -> new BeanReference(
+                        beanManager, bean, bean.getBeanClass()));
         Object result;
         try {
-            Object[] parameters = new Object[restMappingMatch.getMethod().getParameterCount()];
-            if (parameters.length > 0) {
-                for (int i = 0; i < parameters.length; i++) {
-                    parameters[i] = restParameterProducer.produce(
-                            facesContext,
-                            restMappingMatch,
-                            restMappingMatch.getMethod().getParameterTypes()[i],
-                            restMappingMatch.getMethod().getParameterAnnotations()[i]);
+            Object[] parameters = resolveParameters(facesContext, restMappingMatch);
+            MethodInvoker invoker = invokers.computeIfAbsent(
+                    restMappingMatch.getMethod(), MethodInvoker::create);
+            result = invoker.invoke(beanReference.get(facesContext), parameters);
+        } catch (RuntimeException | Error e) {
+            BeanReference.release(facesContext);
+            throw e;
+        } catch (Throwable throwable) {
+            BeanReference.release(facesContext);
+            throw new FacesException(throwable);
+        }
+        if (result instanceof CompletionStage) {
+            Runnable release = BeanReference.detach(facesContext);
+            ((CompletionStage<?>) result).whenComplete((value, throwable) -> release.run());
+        } else {
+            BeanReference.release(facesContext);
+        }
+        return result;
+    }
+
+    /**
+     * Prepare the method for execution on another thread.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the Callable returning the result.
+     */
+    @Override
+    public Callable<Object> prepare(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        BeanReference beanReference = beanReferences.computeIfAbsent(
+                restMappingMatch.getBean(), bean -> new BeanReference(
+                        beanManager, bean, bean.getBeanClass()));
+        Object[] parameters;
+        MethodInvoker invoker;
+        Object instance;
+        try {
+            parameters = resolveParameters(facesContext, restMappingMatch);
+            invoker = invokers.computeIfAbsent(restMappingMatch.getMethod(), MethodInvoker::create);
+            instance = beanReference.getContextualInstance(facesContext);
+        } catch (RuntimeException | Error e) {
+            BeanReference.release(facesContext);
+            throw e;
+        }
+        Runnable release = BeanReference.detach(facesContext);
+        return () -> {
+            RequestContextController requestContextController = requestContextControllers.get();
+            requestContextController.activate();
+            Object result = null;
+            try {
+                result = invoker.invoke(instance, parameters);
+                return result;
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable throwable) {
+                throw new FacesException(throwable);
+            } finally {
+                requestContextController.deactivate();
+                requestContextControllers.destroy(requestContextController);
+                if (result instanceof CompletionStage) {
+                    ((CompletionStage<?>) result).whenComplete((value, throwable) -> release.run());
+                } else {
+                    release.run();
                 }
             }
-            result = restMappingMatch.getMethod().invoke(instance.get(), parameters);
+        };
+    }
+
+    /**
+     * Get the version of the resource.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the version, or null if not known.
+     */
+    @Override
+    public Object version(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        if (restMappingMatch.getVersionMethod() == null) {
+            return null;
+        }
+        BeanReference beanReference = beanReferences.computeIfAbsent(
+                restMappingMatch.getBean(), bean -> new BeanReference(
+                        beanManager, bean, bean.getBeanClass()));
+        try {
+            Object[] parameters = resolveParameters(facesContext, restMappingMatch,
+                    restMappingMatch.getVersionMethod());
+            MethodInvoker invoker = invokers.computeIfAbsent(
+                    restMappingMatch.getVersionMethod(), MethodInvoker::create);
+            return invoker.invoke(beanReference.get(facesContext), parameters);
+        } catch (RuntimeException | Error e) {
+            throw e;
         } catch (Throwable throwable) {
             throw new FacesException(throwable);
+        } finally {
+            BeanReference.release(facesContext);
         }
-        return result;
+    }
+
+    /**
+     * Resolve the parameters using the binding plan of the method.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the parameters.
+     */
+    private Object[] resolveParameters(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        return resolveParameters(facesContext, restMappingMatch, restMappingMatch.getMethod());
+    }
+
+    /**
+     * Resolve the parameters of the given method using its binding plan.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @param method the method.
+     * @return the parameters.
+     */
+    private Object[] resolveParameters(FacesContext facesContext,
+            RestMappingMatch restMappingMatch, Method method) {
+        RestParameterResolver[] resolvers = bindingPlans.computeIfAbsent(
+                method, this::createBindingPlan);
+        Object[] parameters = new Object[resolvers.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = resolvers[i].resolve(facesContext, restMappingMatch);
+        }
+        return parameters;
     }
 }
@@ -27,13 +27,12 @@
 package org.omnifaces.oyena.rest;
 
 import java.lang.annotation.Annotation;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.inject.spi.BeanManager;
 import javax.faces.FacesException;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import org.omnifaces.oyena.common.BeanReference;
 
 /**
  * The default REST parameter producer.
@@ -42,44 +41,78 @@ import javax.faces.context.FacesContext;
  */
 @ApplicationScoped
 public class DefaultRestParameterProducer implements RestParameterProducer {
+
+    /**
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
     
     /**
-     * Produce an instance for the given type.
+     * Create a resolver for the given parameter.
+     *
+     * <p>
+     * The annotations are inspected once here, so the returned resolver does
+     * not have to do any annotation scanning. A parameter without annotation
+     * is resolved as a CDI bean through a bean reference, so the bean is
+     * also only resolved once.
+     * </p>
      *
-     * @param facesContext the Faces context.
-     * @param restMappingMatch the REST mapping match.
      * @param parameterType the parameter type.
      * @param parameterAnnotations the parameter annotations.
-     * @return the instance.
+     * @return the resolver.
      */
     @Override
-    public Object produce(FacesContext facesContext,
-            RestMappingMatch restMappingMatch, Class<?> parameterType,
+    public RestParameterResolver createResolver(Class<?> parameterType,
             Annotation[] parameterAnnotations) {
-        
+
         RestHeaderParameter header = getRestHeaderParameterAnnotation(parameterAnnotations);
         if (header != null) {
-            String[] value = facesContext.getExternalContext().getRequestHeaderValuesMap().get(header.value());
-            return value != null ? value : new String[] {};
+            String name = header.value();
+            return (facesContext, restMappingMatch) -> {
+                String[] value = facesContext.getExternalContext().getRequestHeaderValuesMap().get(name);
+                return value != null ? value : new String[] {};
+            };
         }
-        
+
         RestPathParameter path = getRestPathParameterAnnotation(parameterAnnotations);
         if (path != null) {
-            Pattern pattern = Pattern.compile(restMappingMatch.getRestPath());
-            Matcher matcher = pattern.matcher(restMappingMatch.getPathInfo());
-            if (matcher.matches()) {
-                return matcher.group(path.value());
-            } else {
-                throw new FacesException("Unable to match @RestPathParameter: " + path.value());
-            }
+            String name = path.value();
+            return (facesContext, restMappingMatch) -> {
+                if (restMappingMatch.hasPathParameter(name)) {
+                    return restMappingMatch.getPathParameter(name);
+                } else {
+                    throw new FacesException("Unable to match @RestPathParameter: " + name);
+                }
+            };
         }
 
         RestQueryParameter query = getRestQueryParameterAnnotation(parameterAnnotations);
         if (query != null) {
-            return facesContext.getExternalContext().getRequestParameterMap().get(query.value());
+            String name = query.value();
+            return (facesContext, restMappingMatch)
+                    -> facesContext.getExternalContext().getRequestParameterMap().get(name);
         }
 
-        return CDI.current().select(parameterType, Any.Literal.INSTANCE).get();
+        BeanReference beanReference = BeanReference.resolve(beanManager, parameterType);
+        return (facesContext, restMappingMatch) -> beanReference.get(facesContext);
+    }
+
+    /**
+     * Produce an instance for the given type.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @param parameterType the parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the instance.
+     */
+    @Override
+    public Object produce(FacesContext facesContext,
+            RestMappingMatch restMappingMatch, Class<?> parameterType,
+            Annotation[] parameterAnnotations) {
+        return createResolver(parameterType, parameterAnnotations).resolve(
+                facesContext, restMappingMatch);
     }
 
     /**
@@ -26,29 +26,76 @@
  */
 package org.omnifaces.oyena.rest;
 
-import java.util.Iterator;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Default;
-import javax.enterprise.inject.spi.AnnotatedType;
-import javax.enterprise.inject.spi.Bean;
-import javax.enterprise.inject.spi.BeanManager;
-import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 
 /**
  * The default REST response matcher.
+ *
+ * <p>
+ * This matcher only consults the response writers that were indexed by
+ * content type by the REST extension during deployment. If no response writer
+ * is registered for the content type the default response writer is used.
+ * </p>
+ *
+ * <p>
+ * Content negotiation chooses among the content types of the registered
+ * response writers, using the quality values of the Accept request header.
+ * If none of them is acceptable no content type is returned and the REST
+ * lifecycle answers with a 406 (Not Acceptable).
+ * The set of distinct Accept headers sent by clients is usually small, so the
+ * outcome is cached per distinct Accept header in a bounded, least recently
+ * used, map. Accept headers that are longer than 256 characters are negotiated
+ * but never cached.
+ * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestResponseMatcher implements RestResponseMatcher {
-    
+
+    /**
+     * Stores the maximum length of a cached Accept header.
+     */
+    private static final int MAX_ACCEPT_LENGTH = 256;
+
+    /**
+     * Stores the maximum number of cached Accept headers.
+     */
+    private static final int MAX_NEGOTIATIONS = 128;
+
+    /**
+     * Stores the negotiated content types by Accept header (an empty string
+     * means none of the response writers is acceptable).
+     */
+    private final Map<String, String> negotiations = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_NEGOTIATIONS;
+        }
+    });
+
     /**
-     * Stores the bean manager.
+     * Stores the default response writer.
      */
     @Inject
-    private BeanManager beanManager;
+    private DefaultResponseWriter defaultResponseWriter;
+
+    /**
+     * Stores the REST extension.
+     */
+    @Inject
+    private RestExtension restExtension;
+
     /**
      * Get the response writer for the response content type.
      *
@@ -57,24 +104,115 @@ public class DefaultRestResponseMatcher implements RestResponseMatcher {
      */
     @Override
     public RestResponseWriter getResponseWriter(String responseContentType) {
-        RestResponseWriter result = null;
-        AnnotatedType<RestResponseWriter> type = beanManager.createAnnotatedType(RestResponseWriter.class);
-        Set<Bean<?>> beans = beanManager.getBeans(type.getBaseType());
-        Iterator<Bean<?>> iterator = beans.iterator();
-        while (iterator.hasNext()) {
-            Bean<?> bean = iterator.next();
-            RestResponseWriterContentType contentType = bean.getBeanClass().getAnnotation(RestResponseWriterContentType.class);
-            if (contentType != null && contentType.value().equals(responseContentType)) {
-                result = (RestResponseWriter) CDI.current().select(bean.getBeanClass()).get();
-                break;
-            }
+        RestResponseWriter result = restExtension.getResponseWriters().get(
+                RestExtension.normalizeContentType(responseContentType));
+        return result != null ? result : defaultResponseWriter;
+    }
+
+    /**
+     * Negotiate the response content type.
+     *
+     * @param accept the value of the Accept request header.
+     * @return the negotiated response content type, or null if none of the
+     * response writers is acceptable.
+     */
+    @Override
+    public String negotiateResponseContentType(String accept) {
+        if (accept.length() > MAX_ACCEPT_LENGTH) {
+            return negotiate(accept);
         }
+        String result = negotiations.get(accept);
         if (result == null) {
-            beans = beanManager.getBeans(type.getBaseType(), new Default.Literal());
-            iterator = beans.iterator();
-            Bean<?> bean = iterator.next();
-            result = (RestResponseWriter) CDI.current().select(bean.getBeanClass()).get();
+            result = negotiate(accept);
+            negotiations.put(accept, result != null ? result : "");
+        }
+        return result == null || result.isEmpty() ? null : result;
+    }
+
+    /**
+     * Negotiate the response content type.
+     *
+     * <p>
+     * For every registered content type the quality value of the most specific
+     * matching media range is determined. The content type with the highest
+     * quality value wins, ties are broken by the specificity of the matching
+     * media range and then by preferring application/json.
+     * </p>
+     *
+     * @param accept the value of the Accept request header.
+     * @return the negotiated response content type, or null if none of the
+     * response writers is acceptable.
+     */
+    private String negotiate(String accept) {
+        ArrayList<String[]> ranges = new ArrayList<>();
+        ArrayList<Double> qualities = new ArrayList<>();
+        for (String element : accept.split(",")) {
+            String[] parts = element.split(";");
+            String range = parts[0].trim().toLowerCase(Locale.ROOT);
+            int slash = range.indexOf('/');
+            if (slash == -1) {
+                continue;
+            }
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException nfe) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            ranges.add(new String[]{range.substring(0, slash), range.substring(slash + 1)});
+            qualities.add(quality);
+        }
+        String result = null;
+        double resultQuality = 0.0;
+        int resultSpecificity = -1;
+        for (String contentType : getContentTypes()) {
+            int slash = contentType.indexOf('/');
+            String type = slash != -1 ? contentType.substring(0, slash) : contentType;
+            String subtype = slash != -1 ? contentType.substring(slash + 1) : "";
+            double quality = 0.0;
+            int specificity = -1;
+            for (int i = 0; i < ranges.size(); i++) {
+                String[] range = ranges.get(i);
+                int rangeSpecificity;
+                if (range[0].equals(type) && range[1].equals(subtype)) {
+                    rangeSpecificity = 2;
+                } else if (range[0].equals(type) && range[1].equals("*")) {
+                    rangeSpecificity = 1;
+                } else if (range[0].equals("*") && range[1].equals("*")) {
+                    rangeSpecificity = 0;
+                } else {
+                    continue;
+                }
+                if (rangeSpecificity > specificity) {
+                    specificity = rangeSpecificity;
+                    quality = qualities.get(i);
+                }
+            }
+            if (quality > resultQuality
+                    || (quality == resultQuality && quality > 0.0 && specificity > resultSpecificity)) {
+                result = contentType;
+                resultQuality = quality;
+                resultSpecificity = specificity;
+            }
         }
         return result;
     }
+
+    /**
+     * Get the content types of the registered response writers.
+     *
+     * @return the content types, application/json first and then in
+     * alphabetical order.
+     */
+    private List<String> getContentTypes() {
+        ArrayList<String> result = new ArrayList<>(restExtension.getResponseWriters().keySet());
+        result.sort((c1, c2) -> c1.equals("application/json") ? -1
+                : c2.equals("application/json") ? 1 : c1.compareTo(c2));
+        return result;
+    }
 }
@@ -27,20 +27,36 @@
 package org.omnifaces.oyena.rest;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import javax.enterprise.context.ApplicationScoped;
 import javax.faces.FacesException;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
-import javax.faces.context.ResponseWriter;
+import javax.inject.Inject;
 
 /**
  * The Text (text/plain) response writer.
  *
+ * <p>
+ * The result is written in UTF-8 into a pooled buffer (see the REST response
+ * buffer pool), so small responses are written out with an exact
+ * Content-Length and large ones are streamed.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 @RestResponseWriterContentType("text/plain")
 public class DefaultTextResponseWriter implements RestResponseWriter {
 
+    /**
+     * Stores the response buffer pool.
+     */
+    @Inject
+    private RestResponseBufferPool responseBufferPool;
+
     /**
      * Write the response.
      *
@@ -58,11 +74,19 @@ public class DefaultTextResponseWriter implements RestResponseWriter {
                 throw new FacesException(ioe);
             }
         } else {
+            byte[] buffer = responseBufferPool.acquire();
             try {
-                ResponseWriter responseWriter = facesContext.getResponseWriter();
-                responseWriter.write(result.toString());
+                ExternalContext externalContext = facesContext.getExternalContext();
+                externalContext.setResponseCharacterEncoding("UTF-8");
+                Writer writer = new OutputStreamWriter(
+                        new RestResponseOutputStream(externalContext, buffer), StandardCharsets.UTF_8);
+                writer.write(result.toString());
+                writer.close();
+                facesContext.responseComplete();
             } catch (IOException ioe) {
                 throw new FacesException(ioe);
+            } finally {
+                responseBufferPool.release(buffer);
             }
         }
     }
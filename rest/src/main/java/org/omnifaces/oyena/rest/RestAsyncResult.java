@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+/**
+ * The REST asynchronous result class.
+ *
+ * <p>
+ * When a REST method returns a CompletionStage the request is put in
+ * asynchronous mode. Once the CompletionStage completes (or the asynchronous
+ * request times out) the outcome is stored in a REST asynchronous result
+ * request attribute and the request is dispatched again, at which point the
+ * REST lifecycle renders the outcome.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestAsyncResult {
+
+    /**
+     * Stores the REST mapping match.
+     */
+    private final RestMappingMatch match;
+
+    /**
+     * Stores the result.
+     */
+    private final Object result;
+
+    /**
+     * Stores the throwable.
+     */
+    private final Throwable throwable;
+
+    /**
+     * Stores the timed out flag.
+     */
+    private final boolean timedOut;
+
+    /**
+     * Constructor.
+     *
+     * @param match the REST mapping match.
+     * @param result the result.
+     * @param throwable the throwable (or null if completed normally).
+     * @param timedOut the timed out flag.
+     */
+    public RestAsyncResult(RestMappingMatch match, Object result, Throwable throwable, boolean timedOut) {
+        this.match = match;
+        this.result = result;
+        this.throwable = throwable;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * Get the REST mapping match.
+     *
+     * @return the REST mapping match.
+     */
+    public RestMappingMatch getMatch() {
+        return match;
+    }
+
+    /**
+     * Get the result.
+     *
+     * @return the result.
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * Get the throwable.
+     *
+     * @return the throwable, or null if completed normally.
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * Did the asynchronous request time out.
+     *
+     * @return true if it did, false otherwise.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+}
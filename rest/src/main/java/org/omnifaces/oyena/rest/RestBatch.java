@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.faces.FacesException;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.json.bind.JsonbException;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The REST batch.
+ *
+ * <p>
+ * When the <code>org.omnifaces.oyena.rest.BATCH</code> context parameter is
+ * set to <code>true</code> a POST to <code>/_batch</code> takes a JSON array of
+ * REST batch entries, dispatches each of them through the REST mapping matcher
+ * and the REST method executor, and answers with a JSON array holding the
+ * status and body of each entry (in the same order).
+ * </p>
+ *
+ * <p>
+ * The number of entries is limited by the
+ * <code>org.omnifaces.oyena.rest.BATCH_MAX_ENTRIES</code> context parameter
+ * (defaults to 50). If the <code>org.omnifaces.oyena.rest.BATCH_THREADS</code>
+ * context parameter is larger than 0 the entries are executed in parallel on
+ * a fixed pool of that many threads, otherwise they are executed one after
+ * the other on the container thread. Entries for methods that have to run on
+ * the container thread (see &#64;RestContainerThread, this includes the
+ * methods using beans bound to the request, e.g. request scoped beans) are
+ * always executed one after the other on the container thread, as they share
+ * the request context of the batch request.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ApplicationScoped
+public class RestBatch {
+
+    /**
+     * Stores the batch context parameter name.
+     */
+    public static final String BATCH_PARAM_NAME
+            = "org.omnifaces.oyena.rest.BATCH";
+
+    /**
+     * Stores the batch max entries context parameter name.
+     */
+    public static final String BATCH_MAX_ENTRIES_PARAM_NAME
+            = "org.omnifaces.oyena.rest.BATCH_MAX_ENTRIES";
+
+    /**
+     * Stores the batch threads context parameter name.
+     */
+    public static final String BATCH_THREADS_PARAM_NAME
+            = "org.omnifaces.oyena.rest.BATCH_THREADS";
+
+    /**
+     * Stores the batch path info.
+     */
+    public static final String BATCH_PATH_INFO = "/_batch";
+
+    /**
+     * Stores the enabled flag.
+     */
+    private boolean enabled;
+
+    /**
+     * Stores the executor (or null to execute on the container thread).
+     */
+    private ExecutorService executor;
+
+    /**
+     * Stores the JSON-B context.
+     */
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    /**
+     * Stores the max entries.
+     */
+    private int maxEntries = 50;
+
+    /**
+     * Stores the REST mapping matcher.
+     */
+    @Inject
+    private RestMappingMatcher restMappingMatcher;
+
+    /**
+     * Stores the REST method executor.
+     */
+    @Inject
+    private RestMethodExecutor restMethodExecutor;
+
+    /**
+     * Destroy the executor.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Execute the batch request.
+     *
+     * <p>
+     * The list of REST batch results is stored as the REST result and the
+     * response content type is set to JSON. If the batch request cannot be
+     * parsed a 400 (Bad Request) is sent, if it has too many entries a 413
+     * (Payload Too Large) is sent.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param timeout the timeout (in milliseconds) for all the entries.
+     */
+    public void execute(FacesContext facesContext, long timeout) {
+        ExternalContext externalContext = facesContext.getExternalContext();
+        RestBatchEntry[] entries;
+        try {
+            try {
+                entries = jsonb.fromJson(((HttpServletRequest) externalContext.getRequest()).getInputStream(),
+                        RestBatchEntry[].class);
+            } catch (JsonbException je) {
+                entries = null;
+            }
+            if (entries == null) {
+                externalContext.responseSendError(400, "Unable to parse batch request");
+                facesContext.responseComplete();
+                return;
+            }
+            if (entries.length > maxEntries) {
+                externalContext.responseSendError(413, "Too many batch entries");
+                facesContext.responseComplete();
+                return;
+            }
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+        RestBatchResult[] results = new RestBatchResult[entries.length];
+        CompletionStage<?>[] stages = new CompletionStage<?>[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == null || entries[i].getPath() == null) {
+                results[i] = new RestBatchResult(400, "Missing path");
+                continue;
+            }
+            RestBatchFacesContext entryContext = new RestBatchFacesContext(facesContext, entries[i]);
+            try {
+                RestMappingMatch match = restMappingMatcher.match(entryContext);
+                if (match == null) {
+                    Set<String> allowedMethods = restMappingMatcher.getAllowedMethods(entryContext);
+                    results[i] = allowedMethods.isEmpty()
+                            ? new RestBatchResult(404, "Unable to match request")
+                            : new RestBatchResult(405, "Method not allowed");
+                } else if (executor != null && !match.isContainerThread()) {
+                    Callable<Object> callable = restMethodExecutor.prepare(entryContext, match);
+                    stages[i] = submit(() -> entryContext.call(callable));
+                } else {
+                    Object result = entryContext.call(() -> restMethodExecutor.execute(entryContext, match));
+                    if (result instanceof CompletionStage) {
+                        stages[i] = (CompletionStage<?>) result;
+                    } else {
+                        results[i] = createResult(result);
+                    }
+                }
+            } catch (Exception e) {
+                results[i] = new RestBatchResult(500, "Unable to execute request");
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int i = 0; i < entries.length; i++) {
+            if (stages[i] != null) {
+                try {
+                    results[i] = createResult(stages[i].toCompletableFuture().get(
+                            Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException te) {
+                    results[i] = new RestBatchResult(504, "Asynchronous result timed out");
+                } catch (ExecutionException ee) {
+                    results[i] = ee.getCause() instanceof TimeoutException
+                            ? new RestBatchResult(504, "Asynchronous result timed out")
+                            : new RestBatchResult(500, "Unable to execute request");
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new FacesException(ie);
+                } catch (RuntimeException re) {
+                    results[i] = new RestBatchResult(500, "Unable to execute request");
+                }
+            }
+        }
+        externalContext.setResponseContentType("application/json");
+        facesContext.getAttributes().put(
+                RestLifecycle.class.getPackage().getName() + ".RestResult", Arrays.asList(results));
+    }
+
+    /**
+     * Create the REST batch result for the result of a REST method.
+     *
+     * <p>
+     * A Stream, Iterator, Spliterator or Iterable result is collected into a
+     * list as it has to be embedded in the combined response.
+     * </p>
+     *
+     * @param result the result.
+     * @return the REST batch result.
+     */
+    private static RestBatchResult createResult(Object result) {
+        if (result == null) {
+            return new RestBatchResult(204, null);
+        }
+        Iterator<?> iterator = DefaultJsonResponseWriter.toIterator(result);
+        if (iterator != null) {
+            ArrayList<Object> elements = new ArrayList<>();
+            try {
+                iterator.forEachRemaining(elements::add);
+            } finally {
+                if (result instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) result).close();
+                    } catch (RuntimeException re) {
+                        throw re;
+                    } catch (Exception e) {
+                        throw new FacesException(e);
+                    }
+                }
+            }
+            result = elements;
+        }
+        return new RestBatchResult(200, result);
+    }
+
+    /**
+     * Initialize the batch settings and the executor.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            enabled = Boolean.parseBoolean(externalContext.getInitParameter(BATCH_PARAM_NAME));
+            String entries = externalContext.getInitParameter(BATCH_MAX_ENTRIES_PARAM_NAME);
+            if (entries != null) {
+                maxEntries = Integer.parseInt(entries.trim());
+            }
+            String threads = externalContext.getInitParameter(BATCH_THREADS_PARAM_NAME);
+            if (enabled && threads != null && Integer.parseInt(threads.trim()) > 0) {
+                executor = Executors.newFixedThreadPool(Integer.parseInt(threads.trim()), runnable -> {
+                    Thread thread = new Thread(runnable, "oyena-rest-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    /**
+     * Is the request a batch request.
+     *
+     * @param facesContext the Faces context.
+     * @return true if it is, false otherwise.
+     */
+    public boolean isBatchRequest(FacesContext facesContext) {
+        if (!enabled) {
+            return false;
+        }
+        ExternalContext externalContext = facesContext.getExternalContext();
+        return BATCH_PATH_INFO.equals(externalContext.getRequestPathInfo())
+                && "POST".equals(((HttpServletRequest) externalContext.getRequest()).getMethod());
+    }
+
+    /**
+     * Submit the prepared REST method to the executor.
+     *
+     * @param callable the Callable returning the result.
+     * @return the CompletionStage of the result.
+     */
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Object> submit(Callable<Object> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(result -> result instanceof CompletionStage
+                ? (CompletionStage<Object>) result : CompletableFuture.completedFuture(result));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.Map;
+
+/**
+ * An entry of a REST batch request.
+ *
+ * <p>
+ * Each entry describes one sub-request by its HTTP method (defaults to GET),
+ * its path (relative to the REST Servlet mapping, it may include a query
+ * string), its query parameters and its request headers.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestBatchEntry {
+
+    /**
+     * Stores the request headers.
+     */
+    private Map<String, String> headers;
+
+    /**
+     * Stores the HTTP method.
+     */
+    private String method;
+
+    /**
+     * Stores the path.
+     */
+    private String path;
+
+    /**
+     * Stores the query parameters.
+     */
+    private Map<String, String> query;
+
+    /**
+     * Get the request headers.
+     *
+     * @return the request headers.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Get the HTTP method.
+     *
+     * @return the HTTP method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the path.
+     *
+     * @return the path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the query parameters.
+     *
+     * @return the query parameters.
+     */
+    public Map<String, String> getQuery() {
+        return query;
+    }
+
+    /**
+     * Set the request headers.
+     *
+     * @param headers the request headers.
+     */
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Set the HTTP method.
+     *
+     * @param method the HTTP method.
+     */
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    /**
+     * Set the path.
+     *
+     * @param path the path.
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Set the query parameters.
+     *
+     * @param query the query parameters.
+     */
+    public void setQuery(Map<String, String> query) {
+        this.query = query;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.ExternalContextWrapper;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * The Faces context of an entry of a REST batch request.
+ *
+ * <p>
+ * It wraps the Faces context of the batch request so the REST mapping matcher
+ * and the REST method executor see the HTTP method, path info, query
+ * parameters and request headers of the entry. The request headers of the
+ * batch request are inherited unless the entry overrides them. Each entry has
+ * its own attributes so entries can be executed concurrently.
+ * </p>
+ *
+ * <p>
+ * While an entry executes (see {@link #call(Callable)}) it is the current
+ * Faces context of the executing thread, so
+ * FacesContext.getCurrentInstance() returns the entry on a batch thread as
+ * well as on the container thread.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestBatchFacesContext extends FacesContextWrapper {
+
+    /**
+     * Stores the attributes.
+     */
+    private final Map<Object, Object> attributes = new HashMap<>();
+
+    /**
+     * Stores the external context.
+     */
+    private final ExternalContext externalContext;
+
+    /**
+     * Constructor.
+     *
+     * @param facesContext the Faces context of the batch request.
+     * @param entry the entry.
+     */
+    public RestBatchFacesContext(FacesContext facesContext, RestBatchEntry entry) {
+        super(facesContext);
+        this.externalContext = new BatchExternalContext(facesContext.getExternalContext(), entry);
+    }
+
+    /**
+     * Call the given Callable with this Faces context as the current Faces
+     * context, the previous one is restored afterwards.
+     *
+     * @param <T> the type of the result.
+     * @param callable the Callable.
+     * @return the result.
+     * @throws Exception when the Callable throws.
+     */
+    public <T> T call(Callable<T> callable) throws Exception {
+        FacesContext previous = FacesContext.getCurrentInstance();
+        setCurrentInstance(this);
+        try {
+            return callable.call();
+        } finally {
+            setCurrentInstance(previous);
+        }
+    }
+
+    /**
+     * Get the attributes.
+     *
+     * @return the attributes.
+     */
+    @Override
+    public Map<Object, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the external context.
+     *
+     * @return the external context.
+     */
+    @Override
+    public ExternalContext getExternalContext() {
+        return externalContext;
+    }
+
+    /**
+     * Decode a URL encoded query string component.
+     *
+     * @param value the value.
+     * @return the decoded value.
+     */
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * The external context of an entry.
+     */
+    private static class BatchExternalContext extends ExternalContextWrapper {
+
+        /**
+         * Stores the request header values.
+         */
+        private final Map<String, String[]> headerValues;
+
+        /**
+         * Stores the request headers.
+         */
+        private final Map<String, String> headers;
+
+        /**
+         * Stores the HTTP method.
+         */
+        private final String method;
+
+        /**
+         * Stores the query parameter values.
+         */
+        private final Map<String, String[]> parameterValues;
+
+        /**
+         * Stores the query parameters.
+         */
+        private final Map<String, String> parameters;
+
+        /**
+         * Stores the path info.
+         */
+        private final String pathInfo;
+
+        /**
+         * Stores the request.
+         */
+        private final HttpServletRequest request;
+
+        /**
+         * Constructor.
+         *
+         * @param externalContext the external context of the batch request.
+         * @param entry the entry.
+         */
+        private BatchExternalContext(ExternalContext externalContext, RestBatchEntry entry) {
+            super(externalContext);
+            method = entry.getMethod() != null ? entry.getMethod().toUpperCase(Locale.ROOT) : "GET";
+            String path = entry.getPath();
+            LinkedHashMap<String, String[]> values = new LinkedHashMap<>();
+            if (path != null && path.indexOf('?') != -1) {
+                for (String pair : path.substring(path.indexOf('?') + 1).split("&")) {
+                    if (!pair.isEmpty()) {
+                        int index = pair.indexOf('=');
+                        String name = decode(index != -1 ? pair.substring(0, index) : pair);
+                        String value = index != -1 ? decode(pair.substring(index + 1)) : "";
+                        String[] previous = values.get(name);
+                        if (previous == null) {
+                            values.put(name, new String[]{value});
+                        } else {
+                            String[] next = new String[previous.length + 1];
+                            System.arraycopy(previous, 0, next, 0, previous.length);
+                            next[previous.length] = value;
+                            values.put(name, next);
+                        }
+                    }
+                }
+                path = path.substring(0, path.indexOf('?'));
+            }
+            if (entry.getQuery() != null) {
+                entry.getQuery().forEach((name, value) -> values.put(name, new String[]{value}));
+            }
+            pathInfo = path;
+            parameterValues = Collections.unmodifiableMap(values);
+            LinkedHashMap<String, String> firstValues = new LinkedHashMap<>();
+            values.forEach((name, value) -> firstValues.put(name, value[0]));
+            parameters = Collections.unmodifiableMap(firstValues);
+            TreeMap<String, String[]> allHeaderValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            allHeaderValues.putAll(externalContext.getRequestHeaderValuesMap());
+            if (entry.getHeaders() != null) {
+                entry.getHeaders().forEach((name, value) -> allHeaderValues.put(name, new String[]{value}));
+            }
+            headerValues = Collections.unmodifiableMap(allHeaderValues);
+            TreeMap<String, String> firstHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            allHeaderValues.forEach((name, value) -> {
+                if (value.length > 0) {
+                    firstHeaders.put(name, value[0]);
+                }
+            });
+            headers = Collections.unmodifiableMap(firstHeaders);
+            request = new BatchRequest((HttpServletRequest) externalContext.getRequest(), this);
+        }
+
+        @Override
+        public Map<String, String> getInitParameterMap() {
+            return getWrapped().getInitParameterMap();
+        }
+
+        @Override
+        public Object getRequest() {
+            return request;
+        }
+
+        @Override
+        public Map<String, String> getRequestHeaderMap() {
+            return headers;
+        }
+
+        @Override
+        public Map<String, String[]> getRequestHeaderValuesMap() {
+            return headerValues;
+        }
+
+        @Override
+        public Map<String, String> getRequestParameterMap() {
+            return parameters;
+        }
+
+        @Override
+        public Map<String, String[]> getRequestParameterValuesMap() {
+            return parameterValues;
+        }
+
+        @Override
+        public String getRequestPathInfo() {
+            return pathInfo;
+        }
+    }
+
+    /**
+     * The request of an entry.
+     */
+    private static class BatchRequest extends HttpServletRequestWrapper {
+
+        /**
+         * Stores the external context of the entry.
+         */
+        private final BatchExternalContext externalContext;
+
+        /**
+         * Constructor.
+         *
+         * @param request the request of the batch request.
+         * @param externalContext the external context of the entry.
+         */
+        private BatchRequest(HttpServletRequest request, BatchExternalContext externalContext) {
+            super(request);
+            this.externalContext = externalContext;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return externalContext.headers.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(externalContext.headerValues.keySet());
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            String[] values = externalContext.headerValues.get(name);
+            return Collections.enumeration(values != null
+                    ? Arrays.asList(values) : Collections.<String>emptyList());
+        }
+
+        @Override
+        public String getMethod() {
+            return externalContext.method;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return externalContext.parameters.get(name);
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return externalContext.parameterValues;
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(externalContext.parameterValues.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return externalContext.parameterValues.get(name);
+        }
+
+        @Override
+        public String getPathInfo() {
+            return externalContext.pathInfo;
+        }
+
+        @Override
+        public String getQueryString() {
+            return null;
+        }
+    }
+}
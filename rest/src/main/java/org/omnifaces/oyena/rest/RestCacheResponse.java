@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * The REST cache response.
+ *
+ * <p>
+ * This response wrapper passes the response through unchanged while keeping a
+ * copy of it (up to the given maximum size) so it can be put in the REST
+ * response cache afterwards.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestCacheResponse extends HttpServletResponseWrapper {
+
+    /**
+     * Stores the copy.
+     */
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    /**
+     * Stores the maximum size.
+     */
+    private final int maxSize;
+
+    /**
+     * Stores the output stream.
+     */
+    private ServletOutputStream outputStream;
+
+    /**
+     * Stores the writer.
+     */
+    private PrintWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param response the response.
+     * @param maxSize the maximum size.
+     */
+    public RestCacheResponse(HttpServletResponse response, int maxSize) {
+        super(response);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the copy of the response.
+     *
+     * @return the copy, or null if nothing was written, the response was too
+     * large or it was not a 200 (OK) response.
+     */
+    public byte[] getCopy() {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream == null || copy == null || getStatus() != SC_OK) {
+            return null;
+        }
+        return copy.toByteArray();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CopyOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new CopyOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        copy = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        copy = null;
+    }
+
+    @Override
+    public void sendError(int statusCode) throws IOException {
+        copy = null;
+        super.sendError(statusCode);
+    }
+
+    @Override
+    public void sendError(int statusCode, String message) throws IOException {
+        copy = null;
+        super.sendError(statusCode, message);
+    }
+
+    /**
+     * The output stream that keeps a copy.
+     */
+    private class CopyOutputStream extends ServletOutputStream {
+
+        /**
+         * Stores the response output stream.
+         */
+        private final ServletOutputStream responseOutputStream;
+
+        /**
+         * Constructor.
+         *
+         * @param responseOutputStream the response output stream.
+         */
+        private CopyOutputStream(ServletOutputStream responseOutputStream) {
+            this.responseOutputStream = responseOutputStream;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            responseOutputStream.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return responseOutputStream.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            responseOutputStream.setWriteListener(writeListener);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            responseOutputStream.write(bytes, offset, length);
+            if (copy != null) {
+                if (copy.size() + length > maxSize) {
+                    copy = null;
+                } else {
+                    copy.write(bytes, offset, length);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.lang.annotation.Documented;
+import static java.lang.annotation.ElementType.METHOD;
+import java.lang.annotation.Retention;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The REST cacheable annotation.
+ * 
+ * <p>
+ *  The serialized GET response of a REST method annotated with this annotation
+ *  is kept in the REST response cache for the given time to live. A request
+ *  that hits the cache is answered with the cached bytes without looking up
+ *  the bean, invoking the method or serializing the result.
+ * </p>
+ * 
+ * <p>
+ *  Responses are cached per REST path, path info (and therefore path
+ *  parameters) and response content type. If the response also depends on
+ *  query parameters or request headers they need to be listed, so their
+ *  values become part of the cache key as well.
+ * </p>
+ * 
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@Documented
+@Target(value = {METHOD})
+@Retention(value = RUNTIME)
+public @interface RestCacheable {
+
+    /**
+     * The query parameters the response depends on.
+     * 
+     * @return the query parameter names.
+     */
+    String[] query() default {};
+
+    /**
+     * The time to live.
+     * 
+     * @return the time to live.
+     */
+    long ttl() default 60;
+
+    /**
+     * The time unit of the time to live.
+     * 
+     * @return the time unit.
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * The request headers the response depends on.
+     * 
+     * @return the request header names.
+     */
+    String[] vary() default {};
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.faces.FacesException;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+/**
+ * The REST cached response.
+ *
+ * <p>
+ * A REST cached response is an entry of the REST response cache. It holds the
+ * serialized response and its content type and it writes itself out as a
+ * REST response writer would.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestCachedResponse implements RestResponseWriter {
+
+    /**
+     * Stores the body.
+     */
+    private final byte[] body;
+
+    /**
+     * Stores the content type.
+     */
+    private final String contentType;
+
+    /**
+     * Stores the expiry time (in System.nanoTime() terms).
+     */
+    private final long expires;
+
+    /**
+     * Constructor.
+     *
+     * @param body the body.
+     * @param contentType the content type.
+     * @param expires the expiry time (in System.nanoTime() terms).
+     */
+    public RestCachedResponse(byte[] body, String contentType, long expires) {
+        this.body = body;
+        this.contentType = contentType;
+        this.expires = expires;
+    }
+
+    /**
+     * Get the body.
+     *
+     * @return the body.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Get the content type.
+     *
+     * @return the content type.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Is the cached response expired.
+     *
+     * @param now the current time (in System.nanoTime() terms).
+     * @return true if it is, false otherwise.
+     */
+    public boolean isExpired(long now) {
+        return now - expires >= 0;
+    }
+
+    /**
+     * Write the response.
+     *
+     * @param facesContext the Faces context.
+     */
+    @Override
+    public void writeResponse(FacesContext facesContext) {
+        try {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            externalContext.setResponseContentLength(body.length);
+            OutputStream outputStream = externalContext.getResponseOutputStream();
+            outputStream.write(body);
+            outputStream.flush();
+            facesContext.responseComplete();
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+    }
+}
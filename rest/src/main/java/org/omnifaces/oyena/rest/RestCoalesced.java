@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.lang.annotation.Documented;
+import static java.lang.annotation.ElementType.METHOD;
+import java.lang.annotation.Retention;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import java.lang.annotation.Target;
+
+/**
+ * The REST coalesced annotation.
+ * 
+ * <p>
+ *  Identical concurrent GET requests for a REST method annotated with this
+ *  annotation are coalesced. The first request (the leader) executes the
+ *  method, the requests that arrive while it is in flight (the followers)
+ *  wait for it and are answered with the serialized response of the leader.
+ *  A follower that waited longer than the maximum wait, or whose leader did
+ *  not produce a 200 (OK) response, executes the method itself.
+ * </p>
+ * 
+ * <p>
+ *  Requests are identical if they have the same REST path, path info and
+ *  response content type and the same values for the listed query parameters
+ *  and request headers.
+ * </p>
+ * 
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@Documented
+@Target(value = {METHOD})
+@Retention(value = RUNTIME)
+public @interface RestCoalesced {
+
+    /**
+     * The maximum time (in milliseconds) a follower waits for the leader.
+     * 
+     * @return the maximum wait.
+     */
+    long maxWait() default 5000;
+
+    /**
+     * The query parameters the response depends on.
+     * 
+     * @return the query parameter names.
+     */
+    String[] query() default {};
+
+    /**
+     * The request headers the response depends on.
+     * 
+     * @return the request header names.
+     */
+    String[] vary() default {};
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The REST coalescer.
+ *
+ * <p>
+ * The REST coalescer keeps track of the requests in flight for the REST
+ * methods annotated with &#64;RestCoalesced. The first request for a key
+ * becomes the leader of the flight, later requests for the same key get the
+ * CompletableFuture of the flight to wait on. When the leader completes the
+ * flight it is removed, so the next request starts a new one.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestCoalescer {
+
+    /**
+     * Stores the maximum size of a shared response.
+     */
+    public static final int MAX_SHARED_SIZE = 1024 * 1024;
+
+    /**
+     * Stores the flights.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<RestCachedResponse>> flights
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the follower counter.
+     */
+    private final LongAdder followers = new LongAdder();
+
+    /**
+     * Stores the leader counter.
+     */
+    private final LongAdder leaders = new LongAdder();
+
+    /**
+     * Complete the flight for the given key.
+     *
+     * @param key the key.
+     * @param response the REST cached response to share, or null if the
+     * followers have to execute the method themselves.
+     */
+    public void complete(String key, RestCachedResponse response) {
+        CompletableFuture<RestCachedResponse> flight = flights.remove(key);
+        if (flight != null) {
+            flight.complete(response);
+        }
+    }
+
+    /**
+     * Get the number of followers.
+     *
+     * @return the number of requests that joined a flight.
+     */
+    public long getFollowers() {
+        return followers.sum();
+    }
+
+    /**
+     * Get the number of flights.
+     *
+     * @return the number of flights currently in flight.
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * Get the number of leaders.
+     *
+     * @return the number of requests that started a flight.
+     */
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    /**
+     * Join the flight for the given key.
+     *
+     * @param key the key.
+     * @return the CompletableFuture of the flight to wait on, or null if the
+     * caller is the leader of a new flight (and must complete it).
+     */
+    public CompletableFuture<RestCachedResponse> join(String key) {
+        CompletableFuture<RestCachedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<RestCachedResponse> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            followers.increment();
+        } else {
+            leaders.increment();
+        }
+        return existing;
+    }
+}
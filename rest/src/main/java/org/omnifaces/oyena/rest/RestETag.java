@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.lang.annotation.Documented;
+import static java.lang.annotation.ElementType.METHOD;
+import java.lang.annotation.Retention;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import java.lang.annotation.Target;
+
+/**
+ * The REST ETag annotation.
+ * 
+ * <p>
+ *  A GET (or HEAD) response of a REST method annotated with this annotation
+ *  gets a weak ETag and a request with a matching If-None-Match header gets an
+ *  empty 304 (Not Modified) response.
+ * </p>
+ * 
+ * <p>
+ *  By default the ETag is a hash of the serialized response, so the method is
+ *  still invoked and its result serialized, but nothing is sent if it did not
+ *  change. If the bean can tell the version of the resource cheaply, set the
+ *  name of the method returning it as the version. That method is invoked
+ *  before the REST method (its parameters are bound the same way) and if the
+ *  version matches neither the REST method nor the serialization happens.
+ * </p>
+ * 
+ * <p>
+ *  The hash needs the complete response before the headers are sent, so the
+ *  response is held back in a response buffer (see the
+ *  <code>org.omnifaces.oyena.rest.RESPONSE_BUFFER_SIZE</code> context
+ *  parameter, defaults to 8192 bytes). A response that does not fit in it is
+ *  streamed to the client without an ETag and is never answered with a 304.
+ *  Use a version method for such resources.
+ * </p>
+ * 
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@Documented
+@Target(value = {METHOD})
+@Retention(value = RUNTIME)
+public @interface RestETag {
+
+    /**
+     * The name of the method returning the version.
+     * 
+     * @return the name of the version method, or empty to compute the ETag from
+     * the response.
+     */
+    String version() default "";
+}
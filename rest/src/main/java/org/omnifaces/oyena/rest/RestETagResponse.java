@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.CRC32;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * The REST ETag response.
+ *
+ * <p>
+ * This response wrapper holds back the response in the given buffer so a weak
+ * ETag can be computed from it (its length and CRC32) before anything is
+ * sent. If the ETag matches the If-None-Match request header an empty 304
+ * (Not Modified) is sent instead. If the response does not fit in the buffer,
+ * or the buffer is explicitly flushed, it is streamed without an ETag.
+ * </p>
+ *
+ * <p>
+ * Writes to the wrapped response are blocking, so the output stream is always
+ * ready and a write listener is invoked immediately.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestETagResponse extends HttpServletResponseWrapper {
+
+    /**
+     * Stores the buffer.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Stores the If-None-Match request header.
+     */
+    private final String ifNoneMatch;
+
+    /**
+     * Stores the output stream.
+     */
+    private ETagOutputStream outputStream;
+
+    /**
+     * Stores the writer.
+     */
+    private PrintWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param response the response.
+     * @param buffer the buffer.
+     * @param ifNoneMatch the If-None-Match request header (may be null).
+     */
+    public RestETagResponse(HttpServletResponse response, byte[] buffer, String ifNoneMatch) {
+        super(response);
+        this.buffer = buffer;
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    /**
+     * Finish the response.
+     *
+     * <p>
+     * This computes the ETag of what was held back and either sends it or an
+     * empty 304 (Not Modified).
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.stream();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new ETagOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new ETagOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    /**
+     * Does the If-None-Match header match the ETag.
+     *
+     * <p>
+     * This uses the weak comparison, as is required for If-None-Match.
+     * </p>
+     *
+     * @param ifNoneMatch the If-None-Match header (may be null).
+     * @param etag the ETag.
+     * @return true if it does, false otherwise.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch != null) {
+            String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.equals("*")) {
+                    return true;
+                }
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals(opaqueTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (outputStream != null) {
+            outputStream.resetBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (outputStream != null) {
+            outputStream.resetBuffer();
+        }
+    }
+
+    /**
+     * The Content-Length is determined by this response.
+     *
+     * @param length the ignored length.
+     */
+    @Override
+    public void setContentLength(int length) {
+    }
+
+    /**
+     * The Content-Length is determined by this response.
+     *
+     * @param length the ignored length.
+     */
+    @Override
+    public void setContentLengthLong(long length) {
+    }
+
+    /**
+     * The output stream that holds back the response.
+     */
+    private class ETagOutputStream extends ServletOutputStream {
+
+        /**
+         * Stores the number of held back bytes.
+         */
+        private int count;
+
+        /**
+         * Stores the finished flag.
+         */
+        private boolean finished;
+
+        /**
+         * Stores the response output stream (or null while holding back).
+         */
+        private ServletOutputStream responseOutputStream;
+
+        /**
+         * Finish the stream.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (responseOutputStream == null) {
+                CRC32 crc = new CRC32();
+                crc.update(buffer, 0, count);
+                String etag = "W/\"" + Integer.toHexString(count) + "-"
+                        + Long.toHexString(crc.getValue()) + "\"";
+                setHeader("ETag", etag);
+                if (matches(ifNoneMatch, etag)) {
+                    setStatus(304);
+                } else {
+                    RestETagResponse.super.setContentLength(count);
+                    ServletOutputStream output = RestETagResponse.super.getOutputStream();
+                    output.write(buffer, 0, count);
+                }
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (responseOutputStream != null && !finished) {
+                responseOutputStream.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /**
+         * Drop the held back bytes.
+         */
+        private void resetBuffer() {
+            if (responseOutputStream == null) {
+                count = 0;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException ioe) {
+                writeListener.onError(ioe);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (responseOutputStream == null && !finished && count < buffer.length) {
+                buffer[count++] = (byte) b;
+            } else {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IOException("Stream closed");
+            }
+            if (responseOutputStream == null) {
+                if (count + length <= buffer.length) {
+                    System.arraycopy(bytes, offset, buffer, count, length);
+                    count += length;
+                    return;
+                }
+                stream();
+            }
+            responseOutputStream.write(bytes, offset, length);
+        }
+
+        /**
+         * Give up on the ETag and write out the held back bytes.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        private void stream() throws IOException {
+            if (responseOutputStream == null && !finished) {
+                responseOutputStream = RestETagResponse.super.getOutputStream();
+                responseOutputStream.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+}
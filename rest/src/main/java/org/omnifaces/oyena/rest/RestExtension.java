@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessManagedBean;
+import org.omnifaces.oyena.common.BeanReference;
+
+/**
+ * The REST CDI extension.
+ *
+ * <p>
+ * This extension collects all the methods annotated with &#64;RestPath once
+ * during deployment so the REST mapping matcher does not have to scan all the
+ * beans on every request.
+ * </p>
+ *
+ * <p>
+ * It also collects all the REST response writers annotated with
+ * &#64;RestResponseWriterContentType and indexes them by content type once
+ * deployment has been validated. At that point the response content type
+ * declared by each route (see &#64;RestResponseContentType) is resolved to its
+ * response writer as well.
+ * </p>
+ *
+ * <p>
+ * Routes whose method uses beans bound to the request (see
+ * BeanReference.isRequestBound) are flagged to run on the container thread,
+ * as they cannot be invoked on a virtual thread or a batch thread.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestExtension implements Extension {
+
+    /**
+     * Stores the routes collected during deployment.
+     */
+    private final List<RestRoute> routes = new ArrayList<>();
+
+    /**
+     * Stores the response writer beans collected during deployment.
+     */
+    private final Map<String, Bean<?>> responseWriterBeans = new HashMap<>();
+
+    /**
+     * Stores the response writers by content type.
+     */
+    private volatile Map<String, RestResponseWriter> responseWriters = Collections.emptyMap();
+
+    /**
+     * Stores the route table.
+     */
+    private volatile RestRouteTable routeTable = new RestRouteTable(routes);
+
+    /**
+     * Collect the REST routes of a managed bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process managed bean event.
+     */
+    public <T> void processManagedBean(@Observes ProcessManagedBean<T> event) {
+        RestResponseWriterContentType contentType
+                = event.getAnnotatedBeanClass().getAnnotation(RestResponseWriterContentType.class);
+        if (contentType != null && event.getBean().getTypes().contains(RestResponseWriter.class)) {
+            responseWriterBeans.putIfAbsent(normalizeContentType(contentType.value()), event.getBean());
+        }
+        for (AnnotatedMethod<? super T> method : event.getAnnotatedBeanClass().getMethods()) {
+            if (method.isAnnotationPresent(RestPath.class)) {
+                RestPath restPath = method.getAnnotation(RestPath.class);
+                RestMethod restMethod = method.getAnnotation(RestMethod.class);
+                RestResponseContentType responseContentType = method.getAnnotation(RestResponseContentType.class);
+                routes.add(new RestRoute(event.getBean(), method.getJavaMember(), restPath.value(),
+                        restMethod != null ? restMethod.value().toUpperCase(Locale.ROOT) : null,
+                        responseContentType != null ? responseContentType.value() : null));
+            }
+        }
+    }
+
+    /**
+     * Build the route table after deployment validation.
+     *
+     * @param event the after deployment validation event.
+     * @param beanManager the bean manager.
+     */
+    public void afterDeploymentValidation(@Observes AfterDeploymentValidation event, BeanManager beanManager) {
+        HashMap<String, RestResponseWriter> writers = new HashMap<>();
+        responseWriterBeans.forEach((contentType, bean) -> writers.put(contentType,
+                (RestResponseWriter) beanManager.getReference(bean, RestResponseWriter.class,
+                        beanManager.createCreationalContext(bean))));
+        responseWriters = Collections.unmodifiableMap(writers);
+        responseWriterBeans.clear();
+        for (RestRoute route : routes) {
+            if (route.getResponseContentType() != null) {
+                route.setResponseWriter(writers.get(normalizeContentType(route.getResponseContentType())));
+            }
+            if (!route.isContainerThread() && BeanReference.isRequestBound(
+                    beanManager, route.getBean(), getBeanParameterTypes(route.getMethod()))) {
+                route.setContainerThread(true);
+            }
+        }
+        routeTable = new RestRouteTable(routes);
+        routes.clear();
+    }
+
+    /**
+     * Get the types of the parameters of the method that are resolved as CDI
+     * beans (those without a REST parameter annotation).
+     *
+     * @param method the method.
+     * @return the types.
+     */
+    private static Type[] getBeanParameterTypes(Method method) {
+        ArrayList<Type> types = new ArrayList<>();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            boolean bean = true;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof RestHeaderParameter
+                        || annotation instanceof RestPathParameter
+                        || annotation instanceof RestQueryParameter) {
+                    bean = false;
+                    break;
+                }
+            }
+            if (bean) {
+                types.add(parameterTypes[i]);
+            }
+        }
+        return types.toArray(new Type[0]);
+    }
+
+    /**
+     * Get the response writers.
+     *
+     * @return the response writers keyed by (normalized) content type.
+     */
+    public Map<String, RestResponseWriter> getResponseWriters() {
+        return responseWriters;
+    }
+
+    /**
+     * Get the route table.
+     *
+     * @return the route table.
+     */
+    public RestRouteTable getRouteTable() {
+        return routeTable;
+    }
+
+    /**
+     * Normalize the content type.
+     *
+     * <p>
+     * This strips any parameters (e.g. charset) and lower cases the result.
+     * </p>
+     *
+     * @param contentType the content type.
+     * @return the normalized content type.
+     */
+    public static String normalizeContentType(String contentType) {
+        int index = contentType.indexOf(';');
+        if (index != -1) {
+            contentType = contentType.substring(0, index);
+        }
+        return contentType.trim().toLowerCase(Locale.ROOT);
+    }
+}
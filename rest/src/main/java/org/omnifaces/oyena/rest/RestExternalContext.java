@@ -0,0 +1,666 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.Principal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.faces.context.ExternalContext;
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * The REST external context.
+ *
+ * <p>
+ * This is the lightweight external context used by the REST servlet. It is a
+ * thin view over the servlet request and response, the maps it exposes are
+ * only created when they are asked for.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestExternalContext extends ExternalContext {
+
+    /**
+     * Stores the application map.
+     */
+    private Map<String, Object> applicationMap;
+
+    /**
+     * Stores the request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * Stores the request cookie map.
+     */
+    private Map<String, Object> requestCookieMap;
+
+    /**
+     * Stores the request header map.
+     */
+    private Map<String, String> requestHeaderMap;
+
+    /**
+     * Stores the request header values map.
+     */
+    private Map<String, String[]> requestHeaderValuesMap;
+
+    /**
+     * Stores the request map.
+     */
+    private Map<String, Object> requestMap;
+
+    /**
+     * Stores the request parameter map.
+     */
+    private Map<String, String> requestParameterMap;
+
+    /**
+     * Stores the response.
+     */
+    private HttpServletResponse response;
+
+    /**
+     * Stores the servlet context.
+     */
+    private final ServletContext servletContext;
+
+    /**
+     * Stores the session map.
+     */
+    private Map<String, Object> sessionMap;
+
+    /**
+     * Constructor.
+     *
+     * @param servletContext the servlet context.
+     * @param request the request.
+     * @param response the response.
+     */
+    public RestExternalContext(ServletContext servletContext,
+            HttpServletRequest request, HttpServletResponse response) {
+        this.servletContext = servletContext;
+        this.request = request;
+        this.response = response;
+    }
+
+    @Override
+    public void addResponseCookie(String name, String value, Map<String, Object> properties) {
+        response.addCookie(new Cookie(name, value));
+    }
+
+    @Override
+    public void addResponseHeader(String name, String value) {
+        response.addHeader(name, value);
+    }
+
+    @Override
+    public void dispatch(String path) throws IOException {
+        try {
+            request.getRequestDispatcher(path).forward(request, response);
+        } catch (javax.servlet.ServletException se) {
+            throw new IOException(se);
+        }
+    }
+
+    @Override
+    public String encodeActionURL(String url) {
+        return response.encodeURL(url);
+    }
+
+    @Override
+    public String encodeNamespace(String name) {
+        return name;
+    }
+
+    @Override
+    public String encodeResourceURL(String url) {
+        return response.encodeURL(url);
+    }
+
+    @Override
+    public String encodeWebsocketURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String getApplicationContextPath() {
+        return servletContext.getContextPath();
+    }
+
+    @Override
+    public Map<String, Object> getApplicationMap() {
+        if (applicationMap == null) {
+            applicationMap = new AttributeMap(servletContext::getAttribute,
+                    servletContext::setAttribute, servletContext::removeAttribute,
+                    servletContext::getAttributeNames);
+        }
+        return applicationMap;
+    }
+
+    @Override
+    public String getAuthType() {
+        return request.getAuthType();
+    }
+
+    @Override
+    public Object getContext() {
+        return servletContext;
+    }
+
+    @Override
+    public String getContextName() {
+        return servletContext.getServletContextName();
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return servletContext.getInitParameter(name);
+    }
+
+    @Override
+    public Map<String, String> getInitParameterMap() {
+        HashMap<String, String> result = new HashMap<>();
+        Enumeration<String> names = servletContext.getInitParameterNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            result.put(name, servletContext.getInitParameter(name));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String getMimeType(String file) {
+        return servletContext.getMimeType(file);
+    }
+
+    @Override
+    public String getRealPath(String path) {
+        return servletContext.getRealPath(path);
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return request.getRemoteUser();
+    }
+
+    @Override
+    public Object getRequest() {
+        return request;
+    }
+
+    @Override
+    public String getRequestCharacterEncoding() {
+        return request.getCharacterEncoding();
+    }
+
+    @Override
+    public int getRequestContentLength() {
+        return request.getContentLength();
+    }
+
+    @Override
+    public String getRequestContentType() {
+        return request.getContentType();
+    }
+
+    @Override
+    public String getRequestContextPath() {
+        return request.getContextPath();
+    }
+
+    @Override
+    public Map<String, Object> getRequestCookieMap() {
+        if (requestCookieMap == null) {
+            HashMap<String, Object> cookies = new HashMap<>();
+            if (request.getCookies() != null) {
+                for (Cookie cookie : request.getCookies()) {
+                    cookies.putIfAbsent(cookie.getName(), cookie);
+                }
+            }
+            requestCookieMap = Collections.unmodifiableMap(cookies);
+        }
+        return requestCookieMap;
+    }
+
+    @Override
+    public Map<String, String> getRequestHeaderMap() {
+        if (requestHeaderMap == null) {
+            TreeMap<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Enumeration<String> names = request.getHeaderNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                headers.put(name, request.getHeader(name));
+            }
+            requestHeaderMap = Collections.unmodifiableMap(headers);
+        }
+        return requestHeaderMap;
+    }
+
+    @Override
+    public Map<String, String[]> getRequestHeaderValuesMap() {
+        if (requestHeaderValuesMap == null) {
+            TreeMap<String, String[]> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Enumeration<String> names = request.getHeaderNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                headers.put(name, Collections.list(request.getHeaders(name)).toArray(new String[0]));
+            }
+            requestHeaderValuesMap = Collections.unmodifiableMap(headers);
+        }
+        return requestHeaderValuesMap;
+    }
+
+    @Override
+    public Locale getRequestLocale() {
+        return request.getLocale();
+    }
+
+    @Override
+    public Iterator<Locale> getRequestLocales() {
+        return Collections.list(request.getLocales()).iterator();
+    }
+
+    @Override
+    public Map<String, Object> getRequestMap() {
+        if (requestMap == null) {
+            requestMap = new AttributeMap(request::getAttribute, request::setAttribute,
+                    request::removeAttribute, request::getAttributeNames);
+        }
+        return requestMap;
+    }
+
+    @Override
+    public Map<String, String> getRequestParameterMap() {
+        if (requestParameterMap == null) {
+            HashMap<String, String> parameters = new HashMap<>();
+            request.getParameterMap().forEach((name, values) -> parameters.put(
+                    name, values.length > 0 ? values[0] : null));
+            requestParameterMap = Collections.unmodifiableMap(parameters);
+        }
+        return requestParameterMap;
+    }
+
+    @Override
+    public Iterator<String> getRequestParameterNames() {
+        return Collections.list(request.getParameterNames()).iterator();
+    }
+
+    @Override
+    public Map<String, String[]> getRequestParameterValuesMap() {
+        return request.getParameterMap();
+    }
+
+    @Override
+    public String getRequestPathInfo() {
+        return request.getPathInfo();
+    }
+
+    @Override
+    public String getRequestScheme() {
+        return request.getScheme();
+    }
+
+    @Override
+    public String getRequestServerName() {
+        return request.getServerName();
+    }
+
+    @Override
+    public int getRequestServerPort() {
+        return request.getServerPort();
+    }
+
+    @Override
+    public String getRequestServletPath() {
+        return request.getServletPath();
+    }
+
+    @Override
+    public URL getResource(String path) throws MalformedURLException {
+        return servletContext.getResource(path);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String path) {
+        return servletContext.getResourceAsStream(path);
+    }
+
+    @Override
+    public Set<String> getResourcePaths(String path) {
+        return servletContext.getResourcePaths(path);
+    }
+
+    @Override
+    public Object getResponse() {
+        return response;
+    }
+
+    @Override
+    public int getResponseBufferSize() {
+        return response.getBufferSize();
+    }
+
+    @Override
+    public String getResponseCharacterEncoding() {
+        return response.getCharacterEncoding();
+    }
+
+    @Override
+    public String getResponseContentType() {
+        return response.getContentType();
+    }
+
+    @Override
+    public OutputStream getResponseOutputStream() throws IOException {
+        return response.getOutputStream();
+    }
+
+    @Override
+    public Writer getResponseOutputWriter() throws IOException {
+        return response.getWriter();
+    }
+
+    @Override
+    public Object getSession(boolean create) {
+        return request.getSession(create);
+    }
+
+    @Override
+    public String getSessionId(boolean create) {
+        HttpSession session = request.getSession(create);
+        return session != null ? session.getId() : "";
+    }
+
+    @Override
+    public Map<String, Object> getSessionMap() {
+        if (sessionMap == null) {
+            sessionMap = new AttributeMap(
+                    name -> request.getSession(false) != null ? request.getSession(false).getAttribute(name) : null,
+                    (name, value) -> request.getSession(true).setAttribute(name, value),
+                    name -> {
+                        if (request.getSession(false) != null) {
+                            request.getSession(false).removeAttribute(name);
+                        }
+                    },
+                    () -> request.getSession(false) != null
+                    ? request.getSession(false).getAttributeNames()
+                    : Collections.emptyEnumeration());
+        }
+        return sessionMap;
+    }
+
+    @Override
+    public int getSessionMaxInactiveInterval() {
+        return request.getSession().getMaxInactiveInterval();
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return request.getUserPrincipal();
+    }
+
+    @Override
+    public void invalidateSession() {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+
+    @Override
+    public boolean isResponseCommitted() {
+        return response.isCommitted();
+    }
+
+    @Override
+    public boolean isSecure() {
+        return request.isSecure();
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return request.isUserInRole(role);
+    }
+
+    @Override
+    public void log(String message) {
+        servletContext.log(message);
+    }
+
+    @Override
+    public void log(String message, Throwable throwable) {
+        servletContext.log(message, throwable);
+    }
+
+    @Override
+    public void redirect(String url) throws IOException {
+        response.sendRedirect(url);
+    }
+
+    @Override
+    public void responseFlushBuffer() throws IOException {
+        response.flushBuffer();
+    }
+
+    @Override
+    public void responseReset() {
+        response.reset();
+    }
+
+    @Override
+    public void responseSendError(int statusCode, String message) throws IOException {
+        if (message != null) {
+            response.sendError(statusCode, message);
+        } else {
+            response.sendError(statusCode);
+        }
+    }
+
+    @Override
+    public void setRequest(Object request) {
+        this.request = (HttpServletRequest) request;
+        this.requestCookieMap = null;
+        this.requestHeaderMap = null;
+        this.requestHeaderValuesMap = null;
+        this.requestMap = null;
+        this.requestParameterMap = null;
+        this.sessionMap = null;
+    }
+
+    @Override
+    public void setRequestCharacterEncoding(String encoding) throws UnsupportedEncodingException {
+        request.setCharacterEncoding(encoding);
+    }
+
+    @Override
+    public void setResponse(Object response) {
+        this.response = (HttpServletResponse) response;
+    }
+
+    @Override
+    public void setResponseBufferSize(int size) {
+        response.setBufferSize(size);
+    }
+
+    @Override
+    public void setResponseCharacterEncoding(String encoding) {
+        response.setCharacterEncoding(encoding);
+    }
+
+    @Override
+    public void setResponseContentLength(int length) {
+        response.setContentLength(length);
+    }
+
+    @Override
+    public void setResponseContentType(String contentType) {
+        response.setContentType(contentType);
+    }
+
+    @Override
+    public void setResponseHeader(String name, String value) {
+        response.setHeader(name, value);
+    }
+
+    @Override
+    public void setResponseStatus(int statusCode) {
+        response.setStatus(statusCode);
+    }
+
+    @Override
+    public void setSessionMaxInactiveInterval(int interval) {
+        request.getSession().setMaxInactiveInterval(interval);
+    }
+
+    /**
+     * A map that is backed by the attributes of a servlet API object.
+     */
+    private static class AttributeMap extends AbstractMap<String, Object> {
+
+        /**
+         * Stores the getter.
+         */
+        private final Function<String, Object> getter;
+
+        /**
+         * Stores the names supplier.
+         */
+        private final Supplier<Enumeration<String>> names;
+
+        /**
+         * Stores the remover.
+         */
+        private final Consumer<String> remover;
+
+        /**
+         * Stores the setter.
+         */
+        private final BiConsumer<String, Object> setter;
+
+        /**
+         * Constructor.
+         *
+         * @param getter the getter.
+         * @param setter the setter.
+         * @param remover the remover.
+         * @param names the names supplier.
+         */
+        private AttributeMap(Function<String, Object> getter, BiConsumer<String, Object> setter,
+                Consumer<String> remover, Supplier<Enumeration<String>> names) {
+            this.getter = getter;
+            this.setter = setter;
+            this.remover = remover;
+            this.names = names;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && getter.apply((String) key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<String> iterator = Collections.list(names.get()).iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        private String current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            current = iterator.next();
+                            return new SimpleEntry<>(current, getter.apply(current));
+                        }
+
+                        @Override
+                        public void remove() {
+                            remover.accept(current);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Collections.list(names.get()).size();
+                }
+            };
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? getter.apply((String) key) : null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Object previous = getter.apply(key);
+            setter.accept(key, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            Object previous = getter.apply((String) key);
+            remover.accept((String) key);
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.faces.FactoryFinder;
+import javax.faces.application.Application;
+import javax.faces.application.ApplicationFactory;
+import javax.faces.application.FacesMessage;
+import javax.faces.application.FacesMessage.Severity;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.context.ResponseStream;
+import javax.faces.context.ResponseWriter;
+import javax.faces.event.PhaseId;
+import javax.faces.render.RenderKit;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The REST faces context.
+ *
+ * <p>
+ * This is the lightweight faces context used by the REST servlet. The REST
+ * pipeline only needs the attributes, the external context and the response
+ * complete flag, so everything else (the Application, the messages) is only
+ * created when it is asked for and there is no view root or render kit.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestFacesContext extends FacesContext {
+
+    /**
+     * Stores the application.
+     */
+    private Application application;
+
+    /**
+     * Stores the attributes.
+     */
+    private Map<Object, Object> attributes;
+
+    /**
+     * Stores the current phase id.
+     */
+    private PhaseId currentPhaseId;
+
+    /**
+     * Stores the external context.
+     */
+    private final RestExternalContext externalContext;
+
+    /**
+     * Stores the messages.
+     */
+    private Map<String, List<FacesMessage>> messages;
+
+    /**
+     * Stores the released flag.
+     */
+    private boolean released;
+
+    /**
+     * Stores the render response flag.
+     */
+    private boolean renderResponse;
+
+    /**
+     * Stores the response complete flag.
+     */
+    private boolean responseComplete;
+
+    /**
+     * Stores the response stream.
+     */
+    private ResponseStream responseStream;
+
+    /**
+     * Stores the response writer.
+     */
+    private ResponseWriter responseWriter;
+
+    /**
+     * Stores the view root.
+     */
+    private UIViewRoot viewRoot;
+
+    /**
+     * Constructor.
+     *
+     * <p>
+     * The constructed faces context becomes the current instance.
+     * </p>
+     *
+     * @param servletContext the servlet context.
+     * @param request the request.
+     * @param response the response.
+     */
+    public RestFacesContext(ServletContext servletContext,
+            HttpServletRequest request, HttpServletResponse response) {
+        this.externalContext = new RestExternalContext(servletContext, request, response);
+        setCurrentInstance(this);
+    }
+
+    @Override
+    public void addMessage(String clientId, FacesMessage message) {
+        if (messages == null) {
+            messages = new LinkedHashMap<>();
+        }
+        messages.computeIfAbsent(clientId, k -> new ArrayList<>()).add(message);
+    }
+
+    @Override
+    public Application getApplication() {
+        if (application == null) {
+            ApplicationFactory factory = (ApplicationFactory) FactoryFinder.getFactory(
+                    FactoryFinder.APPLICATION_FACTORY);
+            application = factory.getApplication();
+        }
+        return application;
+    }
+
+    @Override
+    public Map<Object, Object> getAttributes() {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        return attributes;
+    }
+
+    @Override
+    public Iterator<String> getClientIdsWithMessages() {
+        if (messages == null) {
+            return Collections.emptyIterator();
+        }
+        return messages.keySet().iterator();
+    }
+
+    @Override
+    public PhaseId getCurrentPhaseId() {
+        return currentPhaseId;
+    }
+
+    @Override
+    public ExternalContext getExternalContext() {
+        return externalContext;
+    }
+
+    @Override
+    public Severity getMaximumSeverity() {
+        Severity result = null;
+        Iterator<FacesMessage> iterator = getMessages();
+        while (iterator.hasNext()) {
+            Severity severity = iterator.next().getSeverity();
+            if (result == null || severity.compareTo(result) > 0) {
+                result = severity;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<FacesMessage> getMessageList() {
+        ArrayList<FacesMessage> result = new ArrayList<>();
+        getMessages().forEachRemaining(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<FacesMessage> getMessageList(String clientId) {
+        ArrayList<FacesMessage> result = new ArrayList<>();
+        getMessages(clientId).forEachRemaining(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public Iterator<FacesMessage> getMessages() {
+        if (messages == null) {
+            return Collections.emptyIterator();
+        }
+        ArrayList<FacesMessage> result = new ArrayList<>();
+        messages.values().forEach(result::addAll);
+        return result.iterator();
+    }
+
+    @Override
+    public Iterator<FacesMessage> getMessages(String clientId) {
+        if (messages == null || !messages.containsKey(clientId)) {
+            return Collections.emptyIterator();
+        }
+        return messages.get(clientId).iterator();
+    }
+
+    @Override
+    public RenderKit getRenderKit() {
+        return null;
+    }
+
+    @Override
+    public boolean getRenderResponse() {
+        return renderResponse;
+    }
+
+    @Override
+    public boolean getResponseComplete() {
+        return responseComplete;
+    }
+
+    @Override
+    public ResponseStream getResponseStream() {
+        return responseStream;
+    }
+
+    @Override
+    public ResponseWriter getResponseWriter() {
+        return responseWriter;
+    }
+
+    @Override
+    public UIViewRoot getViewRoot() {
+        return viewRoot;
+    }
+
+    @Override
+    public boolean isPostback() {
+        return false;
+    }
+
+    @Override
+    public boolean isReleased() {
+        return released;
+    }
+
+    @Override
+    public void release() {
+        released = true;
+        attributes = null;
+        messages = null;
+        setCurrentInstance(null);
+    }
+
+    @Override
+    public void renderResponse() {
+        renderResponse = true;
+    }
+
+    @Override
+    public void responseComplete() {
+        responseComplete = true;
+    }
+
+    @Override
+    public void setCurrentPhaseId(PhaseId currentPhaseId) {
+        this.currentPhaseId = currentPhaseId;
+    }
+
+    @Override
+    public void setResponseStream(ResponseStream responseStream) {
+        this.responseStream = responseStream;
+    }
+
+    @Override
+    public void setResponseWriter(ResponseWriter responseWriter) {
+        this.responseWriter = responseWriter;
+    }
+
+    @Override
+    public void setViewRoot(UIViewRoot viewRoot) {
+        this.viewRoot = viewRoot;
+    }
+}
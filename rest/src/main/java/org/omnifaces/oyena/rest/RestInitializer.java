@@ -37,11 +37,24 @@ import javax.servlet.ServletRegistration.Dynamic;
  * The ServletContainerInitializer that automatically registers the Oyena REST
  * Servlet and the '/rest/*' mapping if the Oyena REST Servlet has not
  * already been registered.
+ *
+ * <p>
+ * By default the FacesServlet is registered with the REST lifecycle. If the
+ * <code>org.omnifaces.oyena.rest.SERVLET_FAST_PATH</code> context parameter is
+ * set to <code>true</code> the REST servlet is registered instead, which skips
+ * the FacesServlet and the full FacesContext for every REST request.
+ * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class RestInitializer implements ServletContainerInitializer {   
 
+    /**
+     * Stores the servlet fast path context parameter name.
+     */
+    public static final String SERVLET_FAST_PATH_PARAM_NAME
+            = "org.omnifaces.oyena.rest.SERVLET_FAST_PATH";
+
     /**
      * On startup.
      * 
@@ -53,9 +66,15 @@ public class RestInitializer implements ServletContainerInitializer {
     public void onStartup(Set<Class<?>> classes, ServletContext servletContext) 
             throws ServletException {
         if (servletContext.getServletRegistration("Oyena REST Servlet") == null) {
-            Dynamic dynamic = servletContext.addServlet("Oyena REST Servlet", FacesServlet.class.getName());
+            Dynamic dynamic;
+            if (Boolean.parseBoolean(servletContext.getInitParameter(SERVLET_FAST_PATH_PARAM_NAME))) {
+                dynamic = servletContext.addServlet("Oyena REST Servlet", RestServlet.class.getName());
+            } else {
+                dynamic = servletContext.addServlet("Oyena REST Servlet", FacesServlet.class.getName());
+                dynamic.setInitParameter("javax.faces.LIFECYCLE_ID", RestLifecycle.class.getName());
+            }
             dynamic.addMapping("/rest/*");
-            dynamic.setInitParameter("javax.faces.LIFECYCLE_ID", RestLifecycle.class.getName());
+            dynamic.setAsyncSupported(true);
         }
     }
 }
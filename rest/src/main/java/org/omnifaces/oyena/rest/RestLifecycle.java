@@ -27,6 +27,19 @@
 package org.omnifaces.oyena.rest;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.faces.FacesException;
 import javax.faces.context.ExternalContext;
@@ -35,16 +48,126 @@ import javax.faces.event.PhaseListener;
 import javax.faces.lifecycle.Lifecycle;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.omnifaces.oyena.common.CompressionResponse;
 
 /**
  * The REST life-cycle.
  *
+ * <p>
+ * A REST method may return a CompletionStage, in which case the request is put
+ * in asynchronous mode and the container thread is released. When the
+ * CompletionStage completes the request is dispatched again and the result is
+ * rendered through the matching REST response writer. If the asynchronous
+ * request times out a 503 (Service Unavailable) is sent, if the
+ * CompletionStage completes with a TimeoutException a 504 (Gateway Timeout)
+ * is sent. The timeout (in milliseconds) is set with the
+ * <code>org.omnifaces.oyena.rest.ASYNC_TIMEOUT</code> context parameter
+ * (defaults to 30000).
+ * </p>
+ *
+ * <p>
+ * When the <code>org.omnifaces.oyena.rest.VIRTUAL_THREADS</code> context
+ * parameter is set to <code>true</code> (requires Java 21 or later) REST
+ * methods are invoked on a virtual thread per request and completed
+ * asynchronously, except for the methods annotated with
+ * &#64;RestContainerThread and the methods using beans bound to the request
+ * (see RestExtension), as the virtual thread has no Faces context and only
+ * an empty request context.
+ * </p>
+ *
+ * <p>
+ * The output of the REST response writer goes through the REST compression,
+ * so it is gzip or deflate compressed when that is enabled and the client
+ * accepts it, except for the methods annotated with &#64;RestUncompressed.
+ * </p>
+ *
+ * <p>
+ * GET (and HEAD) responses of the methods annotated with &#64;RestETag get a
+ * weak ETag and an empty 304 (Not Modified) is sent if it matches the
+ * If-None-Match request header. If the method declares a version method the
+ * version is checked before the method is executed.
+ * </p>
+ *
+ * <p>
+ * GET responses of the methods annotated with &#64;RestCacheable are kept in
+ * the REST response cache, so later requests are answered from the cache
+ * without executing the method. The byte budget of the cache is set with the
+ * <code>org.omnifaces.oyena.rest.RESPONSE_CACHE_BYTES</code> context parameter
+ * (defaults to 16 MiB, 0 disables the cache).
+ * </p>
+ *
+ * <p>
+ * Identical concurrent GET requests for the methods annotated with
+ * &#64;RestCoalesced are coalesced by the REST coalescer, so only one of them
+ * executes the method and the others share its serialized response.
+ * </p>
+ *
+ * <p>
+ * When enabled a POST to <code>/_batch</code> is handled by the REST batch,
+ * which executes several REST sub-requests in one HTTP round trip.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 @Named("org.omnifaces.oyena.rest.RestLifecycle")
 public class RestLifecycle extends Lifecycle {
 
+    /**
+     * Stores the asynchronous timeout context parameter name.
+     */
+    public static final String ASYNC_TIMEOUT_PARAM_NAME
+            = "org.omnifaces.oyena.rest.ASYNC_TIMEOUT";
+
+    /**
+     * Stores the response cache bytes context parameter name.
+     */
+    public static final String RESPONSE_CACHE_BYTES_PARAM_NAME
+            = "org.omnifaces.oyena.rest.RESPONSE_CACHE_BYTES";
+
+    /**
+     * Stores the virtual threads context parameter name.
+     */
+    public static final String VIRTUAL_THREADS_PARAM_NAME
+            = "org.omnifaces.oyena.rest.VIRTUAL_THREADS";
+
+    /**
+     * Stores the asynchronous timeout (in milliseconds).
+     */
+    private long asyncTimeout = 30000;
+
+    /**
+     * Stores the REST coalescer.
+     */
+    private final RestCoalescer coalescer = new RestCoalescer();
+
+    /**
+     * Stores the REST response cache (or null if disabled).
+     */
+    private RestResponseCache responseCache;
+
+    /**
+     * Stores the virtual thread executor (or null if disabled).
+     */
+    private ExecutorService virtualThreadExecutor;
+
+    /**
+     * Stores the REST batch.
+     */
+    @Inject
+    private RestBatch restBatch;
+
+    /**
+     * Stores the REST compression.
+     */
+    @Inject
+    private RestCompression restCompression;
+
     /**
      * Stores the REST mapping matcher.
      */
@@ -57,6 +180,12 @@ public class RestLifecycle extends Lifecycle {
     @Inject
     private RestMethodExecutor restMethodExecutor;
     
+    /**
+     * Stores the response buffer pool.
+     */
+    @Inject
+    private RestResponseBufferPool responseBufferPool;
+
     /**
      * Stores the REST response matcher.
      */
@@ -76,6 +205,204 @@ public class RestLifecycle extends Lifecycle {
     public void addPhaseListener(PhaseListener phaseListener) {
     }
 
+    /**
+     * Complete the asynchronous request.
+     *
+     * @param facesContext the Faces context.
+     * @param asyncResult the REST asynchronous result.
+     */
+    private void completeAsync(FacesContext facesContext, RestAsyncResult asyncResult) {
+        Throwable throwable = asyncResult.getThrowable();
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        try {
+            if (asyncResult.isTimedOut()) {
+                facesContext.getExternalContext().responseSendError(503, "Asynchronous request timed out");
+                facesContext.responseComplete();
+                return;
+            }
+            if (throwable instanceof TimeoutException) {
+                facesContext.getExternalContext().responseSendError(504, "Asynchronous result timed out");
+                facesContext.responseComplete();
+                return;
+            }
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw new FacesException(throwable);
+        }
+        facesContext.getAttributes().put(
+                RestLifecycle.class.getPackage().getName() + ".RestMappingMatch", asyncResult.getMatch());
+        facesContext.getAttributes().put(
+                RestLifecycle.class.getPackage().getName() + ".RestResult", asyncResult.getResult());
+    }
+
+    /**
+     * Complete the flight the request is the leader of (if any).
+     *
+     * @param facesContext the Faces context.
+     * @param response the REST cached response to share with the followers,
+     * or null if they have to execute the method themselves.
+     */
+    private void completeFlight(FacesContext facesContext, RestCachedResponse response) {
+        String coalesceKey = (String) facesContext.getExternalContext().getRequestMap().remove(
+                RestLifecycle.class.getPackage().getName() + ".RestCoalesceKey");
+        if (coalesceKey != null) {
+            coalescer.complete(coalesceKey, response);
+        }
+    }
+
+    /**
+     * Create the key of the response in the REST response cache or the REST
+     * coalescer.
+     *
+     * @param externalContext the external context.
+     * @param match the REST mapping match.
+     * @param query the query parameters the response depends on.
+     * @param vary the request headers the response depends on.
+     * @return the key.
+     */
+    private String createKey(ExternalContext externalContext, RestMappingMatch match,
+            String[] query, String[] vary) {
+        StringBuilder key = new StringBuilder(match.getRestPath())
+                .append('\n').append(match.getPathInfo())
+                .append('\n').append(determineResponseContentType(externalContext, match));
+        for (String name : query) {
+            key.append('\n').append(name).append('=')
+                    .append(externalContext.getRequestParameterMap().get(name));
+        }
+        for (String name : vary) {
+            key.append('\n').append(name).append(':')
+                    .append(externalContext.getRequestHeaderMap().get(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Determine the response content type.
+     *
+     * <p>
+     * This is the response content type declared by the REST mapping match or
+     * otherwise the one negotiated using the Accept request header. Without an
+     * Accept request header it is JSON.
+     * </p>
+     *
+     * @param externalContext the external context.
+     * @param match the REST mapping match (may be null).
+     * @return the response content type, or null if none of the response
+     * writers is acceptable.
+     */
+    private String determineResponseContentType(ExternalContext externalContext, RestMappingMatch match) {
+        if (match != null && match.getResponseContentType() != null) {
+            return match.getResponseContentType();
+        }
+        String accept = externalContext.getRequestHeaderMap().get("Accept");
+        if (accept == null) {
+            return "application/json";
+        }
+        return restResponseMatcher.negotiateResponseContentType(accept);
+    }
+
+    /**
+     * Get the REST coalescer.
+     *
+     * @return the REST coalescer.
+     */
+    public RestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Get the REST response cache.
+     *
+     * @return the REST response cache, or null if disabled.
+     */
+    public RestResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Has the request been put in asynchronous mode.
+     *
+     * @param externalContext the external context.
+     * @return true if it has, false otherwise.
+     */
+    private static boolean isAsyncStarted(ExternalContext externalContext) {
+        return externalContext.getRequest() instanceof HttpServletRequest
+                && ((HttpServletRequest) externalContext.getRequest()).isAsyncStarted();
+    }
+
+    /**
+     * Is the request a GET request.
+     *
+     * @param externalContext the external context.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isGet(ExternalContext externalContext) {
+        return "GET".equals(((HttpServletRequest) externalContext.getRequest()).getMethod());
+    }
+
+    /**
+     * Is the request a GET (or HEAD) request.
+     *
+     * @param externalContext the external context.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isGetOrHead(ExternalContext externalContext) {
+        String method = ((HttpServletRequest) externalContext.getRequest()).getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Is the request a HEAD request.
+     *
+     * @param externalContext the external context.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isHead(ExternalContext externalContext) {
+        return "HEAD".equals(((HttpServletRequest) externalContext.getRequest()).getMethod());
+    }
+
+    /**
+     * Check the version of the resource against the If-None-Match header.
+     *
+     * <p>
+     * The ETag derived from the version is always set. If it matches an empty
+     * 304 (Not Modified) is sent and the response is completed.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param match the REST mapping match.
+     * @return true if the resource is not modified, false otherwise.
+     */
+    private boolean isNotModified(FacesContext facesContext, RestMappingMatch match) {
+        ExternalContext externalContext = facesContext.getExternalContext();
+        if (!isGetOrHead(externalContext)) {
+            return false;
+        }
+        Object version = restMethodExecutor.version(facesContext, match);
+        if (version == null) {
+            return false;
+        }
+        String etag = "W/\"" + version.toString().replace("\"", "") + "\"";
+        externalContext.setResponseHeader("ETag", etag);
+        externalContext.getRequestMap().put(
+                RestLifecycle.class.getPackage().getName() + ".RestETag", etag);
+        if (RestETagResponse.matches(externalContext.getRequestHeaderMap().get("If-None-Match"), etag)) {
+            externalContext.setResponseStatus(304);
+            facesContext.responseComplete();
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Perform the execute part of lifecycle.
      *
@@ -84,18 +411,79 @@ public class RestLifecycle extends Lifecycle {
      */
     @Override
     public void execute(FacesContext facesContext) throws FacesException {
-        RestMappingMatch match = restMappingMatcher.match(facesContext);
-        if (match != null) {
-            Object result = restMethodExecutor.execute(facesContext, match);
-            facesContext.getAttributes().put(
-                    RestLifecycle.class.getPackage().getName() + ".RestResult", result);
-        } else {
-            try {
-                facesContext.getExternalContext().responseSendError(404, "Unable to match request");
-                facesContext.responseComplete();
-            } catch (IOException ioe) {
-                throw new FacesException(ioe);
+        try {
+            RestAsyncResult asyncResult = (RestAsyncResult) facesContext.getExternalContext()
+                    .getRequestMap().remove(RestAsyncResult.class.getName());
+            if (asyncResult != null) {
+                completeAsync(facesContext, asyncResult);
+                return;
+            }
+            if (restBatch.isBatchRequest(facesContext)) {
+                restBatch.execute(facesContext, asyncTimeout);
+                return;
             }
+            RestMappingMatch match = restMappingMatcher.match(facesContext);
+            if (match != null) {
+                facesContext.getAttributes().put(
+                        RestLifecycle.class.getPackage().getName() + ".RestMappingMatch", match);
+                if (determineResponseContentType(facesContext.getExternalContext(), match) == null) {
+                    try {
+                        facesContext.getExternalContext().addResponseHeader("Vary", "Accept");
+                        facesContext.getExternalContext().responseSendError(406, "Not acceptable");
+                        facesContext.responseComplete();
+                    } catch (IOException ioe) {
+                        throw new FacesException(ioe);
+                    }
+                    return;
+                }
+                if (match.getVersionMethod() != null && isNotModified(facesContext, match)) {
+                    return;
+                }
+                if (responseCache != null && match.getCacheable() != null && isGet(facesContext.getExternalContext())) {
+                    String cacheKey = createKey(facesContext.getExternalContext(), match,
+                        match.getCacheable().query(), match.getCacheable().vary());
+                    RestCachedResponse cachedResponse = responseCache.get(cacheKey);
+                    if (cachedResponse != null) {
+                        facesContext.getAttributes().put(
+                                RestLifecycle.class.getPackage().getName() + ".RestCachedResponse", cachedResponse);
+                        return;
+                    }
+                    facesContext.getExternalContext().getRequestMap().put(
+                            RestLifecycle.class.getPackage().getName() + ".RestCacheKey", cacheKey);
+                }
+                if (match.getCoalesced() != null && isGet(facesContext.getExternalContext())
+                        && joinFlight(facesContext, match)) {
+                    return;
+                }
+                if (virtualThreadExecutor != null && !match.isContainerThread()) {
+                    startAsync(facesContext, match, submit(restMethodExecutor.prepare(facesContext, match)));
+                    return;
+                }
+                Object result = restMethodExecutor.execute(facesContext, match);
+                if (result instanceof CompletionStage) {
+                    startAsync(facesContext, match, (CompletionStage<?>) result);
+                    return;
+                }
+                facesContext.getAttributes().put(
+                        RestLifecycle.class.getPackage().getName() + ".RestResult", result);
+            } else {
+                try {
+                    ExternalContext externalContext = facesContext.getExternalContext();
+                    Set<String> allowedMethods = restMappingMatcher.getAllowedMethods(facesContext);
+                    if (!allowedMethods.isEmpty()) {
+                        externalContext.setResponseHeader("Allow", String.join(", ", allowedMethods));
+                        externalContext.responseSendError(405, "Method not allowed");
+                    } else {
+                        externalContext.responseSendError(404, "Unable to match request");
+                    }
+                    facesContext.responseComplete();
+                } catch (IOException ioe) {
+                    throw new FacesException(ioe);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            completeFlight(facesContext, null);
+            throw e;
         }
     }
 
@@ -114,6 +502,44 @@ public class RestLifecycle extends Lifecycle {
         return new PhaseListener[0];
     }
 
+    /**
+     * Destroy the virtual thread executor.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Initialize the asynchronous timeout and the virtual thread executor.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String timeout = externalContext.getInitParameter(ASYNC_TIMEOUT_PARAM_NAME);
+            if (timeout != null) {
+                asyncTimeout = Long.parseLong(timeout.trim());
+            }
+            String cacheBytes = externalContext.getInitParameter(RESPONSE_CACHE_BYTES_PARAM_NAME);
+            long budget = cacheBytes != null ? Long.parseLong(cacheBytes.trim()) : 16L * 1024 * 1024;
+            if (budget > 0) {
+                responseCache = new RestResponseCache(budget);
+            }
+            if (Boolean.parseBoolean(externalContext.getInitParameter(VIRTUAL_THREADS_PARAM_NAME))) {
+                try {
+                    virtualThreadExecutor = (ExecutorService) Executors.class
+                            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException roe) {
+                    throw new FacesException("Virtual threads require Java 21 or later", roe);
+                }
+            }
+        }
+    }
+
     /**
      * Remove a phase listener.
      *
@@ -127,6 +553,47 @@ public class RestLifecycle extends Lifecycle {
     public void removePhaseListener(PhaseListener phaseListener) {
     }
 
+    /**
+     * Join the flight of identical requests (see &#64;RestCoalesced).
+     *
+     * <p>
+     * If there is no flight yet the request becomes the leader of a new one,
+     * which it completes when it is rendered. Otherwise the request follows
+     * the flight and waits (at most the maximum wait) for the response of the
+     * leader.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param match the REST mapping match.
+     * @return true if the request is answered with the response of the leader,
+     * false if it has to execute the method.
+     */
+    private boolean joinFlight(FacesContext facesContext, RestMappingMatch match) {
+        ExternalContext externalContext = facesContext.getExternalContext();
+        RestCoalesced coalesced = match.getCoalesced();
+        String coalesceKey = createKey(externalContext, match, coalesced.query(), coalesced.vary());
+        CompletableFuture<RestCachedResponse> flight = coalescer.join(coalesceKey);
+        if (flight == null) {
+            externalContext.getRequestMap().put(
+                    RestLifecycle.class.getPackage().getName() + ".RestCoalesceKey", coalesceKey);
+            return false;
+        }
+        RestCachedResponse response = null;
+        try {
+            response = flight.get(coalesced.maxWait(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            response = null;
+        }
+        if (response != null) {
+            facesContext.getAttributes().put(
+                    RestLifecycle.class.getPackage().getName() + ".RestCachedResponse", response);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Perform the render part of the REST life-cycle.
      *
@@ -135,14 +602,197 @@ public class RestLifecycle extends Lifecycle {
      */
     @Override
     public void render(FacesContext facesContext) throws FacesException {
+        if (facesContext.getResponseComplete() && !isAsyncStarted(facesContext.getExternalContext())) {
+            completeFlight(facesContext, null);
+        }
         if (!facesContext.getResponseComplete()) {
             ExternalContext externalContext = facesContext.getExternalContext();
+            RestResponseWriter responseWriter = null;
+            RestMappingMatch match = (RestMappingMatch) facesContext.getAttributes().get(
+                    RestLifecycle.class.getPackage().getName() + ".RestMappingMatch");
+            RestCachedResponse cachedResponse = (RestCachedResponse) facesContext.getAttributes().get(
+                    RestLifecycle.class.getPackage().getName() + ".RestCachedResponse");
             String responseContentType = externalContext.getResponseContentType();
             if (responseContentType == null) {
-                externalContext.setResponseContentType("application/json");
-                responseContentType = "application/json";
+                responseContentType = determineResponseContentType(externalContext, match);
+                if (match != null && match.getResponseContentType() != null) {
+                    responseWriter = match.getResponseWriter();
+                } else {
+                    externalContext.addResponseHeader("Vary", "Accept");
+                }
+                externalContext.setResponseContentType(cachedResponse != null
+                        ? cachedResponse.getContentType() : responseContentType);
+            }
+            if (cachedResponse != null) {
+                responseWriter = cachedResponse;
+            } else if (responseWriter == null) {
+                responseWriter = restResponseMatcher.getResponseWriter(responseContentType);
+            }
+            Object response = externalContext.getResponse();
+            RestHeadResponse headResponse = null;
+            if (response instanceof HttpServletResponse && isHead(externalContext)) {
+                headResponse = new RestHeadResponse((HttpServletResponse) response);
+                externalContext.setResponse(headResponse);
+            }
+            boolean streaming = responseWriter.isStreaming();
+            CompressionResponse compressionResponse = null;
+            if (!streaming && (match == null || !match.isUncompressed())) {
+                compressionResponse = restCompression.start(externalContext);
+            }
+            RestCacheResponse cacheResponse = null;
+            String cacheKey = (String) externalContext.getRequestMap().get(
+                    RestLifecycle.class.getPackage().getName() + ".RestCacheKey");
+            boolean leader = externalContext.getRequestMap().containsKey(
+                    RestLifecycle.class.getPackage().getName() + ".RestCoalesceKey");
+            if ((cacheKey != null || leader) && cachedResponse == null
+                    && externalContext.getResponse() instanceof HttpServletResponse) {
+                cacheResponse = new RestCacheResponse((HttpServletResponse) externalContext.getResponse(),
+                        Math.max(cacheKey != null ? responseCache.getMaxEntrySize() : 0,
+                                leader ? RestCoalescer.MAX_SHARED_SIZE : 0));
+                externalContext.setResponse(cacheResponse);
+            }
+            RestETagResponse etagResponse = null;
+            byte[] buffer = null;
+            if (!streaming && match != null && match.isEtag() && isGetOrHead(externalContext)
+                    && !externalContext.getRequestMap().containsKey(
+                            RestLifecycle.class.getPackage().getName() + ".RestETag")
+                    && externalContext.getResponse() instanceof HttpServletResponse) {
+                buffer = responseBufferPool.acquire();
+                etagResponse = new RestETagResponse((HttpServletResponse) externalContext.getResponse(),
+                        buffer, externalContext.getRequestHeaderMap().get("If-None-Match"));
+                externalContext.setResponse(etagResponse);
+            }
+            try {
+                responseWriter.writeResponse(facesContext);
+                if (etagResponse != null) {
+                    etagResponse.finish();
+                }
+                byte[] copy = cacheResponse != null ? cacheResponse.getCopy() : null;
+                if (copy != null && cacheKey != null) {
+                    RestCacheable cacheable = match.getCacheable();
+                    responseCache.put(cacheKey, new RestCachedResponse(copy, cacheResponse.getContentType(),
+                            System.nanoTime() + cacheable.unit().toNanos(cacheable.ttl())));
+                }
+                if (copy != null && leader) {
+                    completeFlight(facesContext, new RestCachedResponse(copy, cacheResponse.getContentType(), 0));
+                }
+                if (compressionResponse != null) {
+                    compressionResponse.finish();
+                }
+                if (headResponse != null) {
+                    headResponse.finish();
+                }
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            } finally {
+                if (compressionResponse != null) {
+                    compressionResponse.release();
+                }
+                if (buffer != null) {
+                    responseBufferPool.release(buffer);
+                }
+                externalContext.setResponse(response);
+                completeFlight(facesContext, null);
             }
-            restResponseMatcher.getResponseWriter(responseContentType).writeResponse(facesContext);
         }
     }
+
+    /**
+     * Submit the prepared REST method to the virtual thread executor.
+     *
+     * @param callable the Callable returning the result.
+     * @return the CompletionStage of the result.
+     */
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Object> submit(Callable<Object> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, virtualThreadExecutor).thenCompose(result -> result instanceof CompletionStage
+                ? (CompletionStage<Object>) result : CompletableFuture.completedFuture(result));
+    }
+
+    /**
+     * Start the asynchronous request.
+     *
+     * <p>
+     * If the CompletionStage already completed, or the request does not
+     * support asynchronous mode, the outcome is completed on the current
+     * thread. If the asynchronous request fails (e.g. the client aborted) it
+     * is completed without dispatching and the flight it leads (if any) is
+     * completed, so its followers execute the method themselves.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param match the REST mapping match.
+     * @param stage the CompletionStage.
+     */
+    private void startAsync(FacesContext facesContext, RestMappingMatch match, CompletionStage<?> stage) {
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        if ((stage instanceof CompletableFuture && ((CompletableFuture<?>) stage).isDone())
+                || !request.isAsyncSupported()) {
+            RestAsyncResult asyncResult;
+            try {
+                asyncResult = new RestAsyncResult(match,
+                        stage.toCompletableFuture().get(asyncTimeout, TimeUnit.MILLISECONDS), null, false);
+            } catch (ExecutionException ee) {
+                asyncResult = new RestAsyncResult(match, null, ee.getCause(), false);
+            } catch (TimeoutException te) {
+                asyncResult = new RestAsyncResult(match, null, null, true);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new FacesException(ie);
+            }
+            completeAsync(facesContext, asyncResult);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(asyncTimeout);
+        AtomicBoolean dispatched = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                dispatched.set(true);
+                String coalesceKey = (String) request.getAttribute(
+                        RestLifecycle.class.getPackage().getName() + ".RestCoalesceKey");
+                try {
+                    asyncContext.complete();
+                } finally {
+                    if (coalesceKey != null) {
+                        coalescer.complete(coalesceKey, null);
+                    }
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (dispatched.compareAndSet(false, true)) {
+                    request.setAttribute(RestAsyncResult.class.getName(),
+                            new RestAsyncResult(match, null, null, true));
+                    asyncContext.dispatch();
+                }
+            }
+        });
+        stage.whenComplete((result, throwable) -> {
+            if (dispatched.compareAndSet(false, true)) {
+                request.setAttribute(RestAsyncResult.class.getName(),
+                        new RestAsyncResult(match, result, throwable, false));
+                asyncContext.dispatch();
+            }
+        });
+        facesContext.responseComplete();
+    }
 }
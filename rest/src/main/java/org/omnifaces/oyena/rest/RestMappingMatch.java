@@ -41,6 +41,26 @@ public class RestMappingMatch {
      */
     private Bean<?> bean;
 
+    /**
+     * Stores the cacheable annotation.
+     */
+    private RestCacheable cacheable;
+
+    /**
+     * Stores the coalesced annotation.
+     */
+    private RestCoalesced coalesced;
+
+    /**
+     * Stores the container thread flag.
+     */
+    private boolean containerThread;
+
+    /**
+     * Stores the ETag flag.
+     */
+    private boolean etag;
+
     /**
      * Stores the method.
      */
@@ -51,11 +71,69 @@ public class RestMappingMatch {
      */
     private String pathInfo;
 
+    /**
+     * Stores the path parameter names.
+     */
+    private String[] pathParameterNames = new String[0];
+
+    /**
+     * Stores the path parameter offsets (start and end for each name).
+     */
+    private int[] pathParameterOffsets = new int[0];
+
+    /**
+     * Stores the response content type.
+     */
+    private String responseContentType;
+
+    /**
+     * Stores the response writer.
+     */
+    private RestResponseWriter responseWriter;
+
     /**
      * Stores the RestPath.
      */
     private String restPath;
 
+    /**
+     * Stores the uncompressed flag.
+     */
+    private boolean uncompressed;
+
+    /**
+     * Stores the version method.
+     */
+    private Method versionMethod;
+
+    /**
+     * Constructor.
+     */
+    public RestMappingMatch() {
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param match the REST mapping match to copy.
+     */
+    public RestMappingMatch(RestMappingMatch match) {
+        this.bean = match.bean;
+        this.cacheable = match.cacheable;
+        this.coalesced = match.coalesced;
+        this.containerThread = match.containerThread;
+        this.etag = match.etag;
+        this.method = match.method;
+        this.pathInfo = match.pathInfo;
+        this.pathParameterNames = match.pathParameterNames;
+        this.pathParameterOffsets = match.pathParameterOffsets;
+        this.responseContentType = match.responseContentType;
+        this.responseWriter = match.responseWriter;
+        this.restPath = match.restPath;
+        this.uncompressed = match.uncompressed;
+        this.versionMethod = match.versionMethod;
+    }
+
     /**
      * Get the bean.
      *
@@ -69,11 +147,34 @@ public class RestMappingMatch {
      * Get the length.
      *
      * @return the length.
+     * @deprecated REST routes are ranked by specificity in the REST route
+     * table, see {@link RestRoute#compareTo(RestRoute)}.
      */
+    @Deprecated
     public int getLength() {
         return pathInfo.length();
     }
 
+    /**
+     * Get the cacheable annotation.
+     *
+     * @return the &#64;RestCacheable annotation, or null if the response is not
+     * cached.
+     */
+    public RestCacheable getCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Get the coalesced annotation.
+     *
+     * @return the &#64;RestCoalesced annotation, or null if requests are not
+     * coalesced.
+     */
+    public RestCoalesced getCoalesced() {
+        return coalesced;
+    }
+
     /**
      * Get the method.
      *
@@ -92,6 +193,119 @@ public class RestMappingMatch {
         return pathInfo;
     }
 
+    /**
+     * Get the index of the given path parameter.
+     *
+     * @param name the name.
+     * @return the index, or -1 if not found.
+     */
+    private int getPathParameterIndex(String name) {
+        for (int i = 0; i < pathParameterNames.length; i++) {
+            if (pathParameterNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the path parameter (a.k.a the value of a named capturing group).
+     *
+     * @param name the name.
+     * @return the path parameter, or null if the capturing group did not
+     * participate in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public String getPathParameter(String name) {
+        int start = getPathParameterStart(name);
+        if (start == -1) {
+            return null;
+        }
+        return pathInfo.substring(start, getPathParameterEnd(name));
+    }
+
+    /**
+     * Get the end offset of the path parameter in the path info.
+     *
+     * @param name the name.
+     * @return the end offset, or -1 if the capturing group did not participate
+     * in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public int getPathParameterEnd(String name) {
+        int index = getPathParameterIndex(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("No path parameter with name: " + name);
+        }
+        return pathParameterOffsets[index * 2 + 1];
+    }
+
+    /**
+     * Get the path parameter names.
+     *
+     * @return the path parameter names.
+     */
+    public String[] getPathParameterNames() {
+        return pathParameterNames;
+    }
+
+    /**
+     * Get the path parameter offsets (start and end for each name).
+     *
+     * @return the path parameter offsets.
+     */
+    public int[] getPathParameterOffsets() {
+        return pathParameterOffsets;
+    }
+
+    /**
+     * Get the start offset of the path parameter in the path info.
+     *
+     * @param name the name.
+     * @return the start offset, or -1 if the capturing group did not
+     * participate in the match.
+     * @throws IllegalArgumentException when there is no path parameter with
+     * the given name.
+     */
+    public int getPathParameterStart(String name) {
+        int index = getPathParameterIndex(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("No path parameter with name: " + name);
+        }
+        return pathParameterOffsets[index * 2];
+    }
+
+    /**
+     * Has the path parameter.
+     *
+     * @param name the name.
+     * @return true if the REST path has a path parameter with the given name,
+     * false otherwise.
+     */
+    public boolean hasPathParameter(String name) {
+        return getPathParameterIndex(name) != -1;
+    }
+
+    /**
+     * Get the response content type.
+     *
+     * @return the response content type, or null if it is negotiated.
+     */
+    public String getResponseContentType() {
+        return responseContentType;
+    }
+
+    /**
+     * Get the response writer.
+     *
+     * @return the response writer, or null if not resolved.
+     */
+    public RestResponseWriter getResponseWriter() {
+        return responseWriter;
+    }
+
     /**
      * Get the REST path.
      *
@@ -101,6 +315,42 @@ public class RestMappingMatch {
         return restPath;
     }
 
+    /**
+     * Get the version method.
+     *
+     * @return the version method, or null if the ETag is computed.
+     */
+    public Method getVersionMethod() {
+        return versionMethod;
+    }
+
+    /**
+     * Is the method to be invoked on the container thread.
+     *
+     * @return true if it is (see &#64;RestContainerThread), false otherwise.
+     */
+    public boolean isContainerThread() {
+        return containerThread;
+    }
+
+    /**
+     * Is the response to get an ETag.
+     *
+     * @return true if it is (see &#64;RestETag), false otherwise.
+     */
+    public boolean isEtag() {
+        return etag;
+    }
+
+    /**
+     * Is the response to be sent uncompressed.
+     *
+     * @return true if it is (see &#64;RestUncompressed), false otherwise.
+     */
+    public boolean isUncompressed() {
+        return uncompressed;
+    }
+
     /**
      * Set the bean.
      *
@@ -110,6 +360,42 @@ public class RestMappingMatch {
         this.bean = bean;
     }
 
+    /**
+     * Set the cacheable annotation.
+     *
+     * @param cacheable the &#64;RestCacheable annotation.
+     */
+    public void setCacheable(RestCacheable cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Set the coalesced annotation.
+     *
+     * @param coalesced the &#64;RestCoalesced annotation.
+     */
+    public void setCoalesced(RestCoalesced coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * Set the container thread flag.
+     *
+     * @param containerThread the container thread flag.
+     */
+    public void setContainerThread(boolean containerThread) {
+        this.containerThread = containerThread;
+    }
+
+    /**
+     * Set the ETag flag.
+     *
+     * @param etag the ETag flag.
+     */
+    public void setEtag(boolean etag) {
+        this.etag = etag;
+    }
+
     /**
      * Set the method.
      *
@@ -128,6 +414,48 @@ public class RestMappingMatch {
         this.pathInfo = pathInfo;
     }
 
+    /**
+     * Set the path parameter names.
+     *
+     * @param pathParameterNames the path parameter names.
+     */
+    public void setPathParameterNames(String[] pathParameterNames) {
+        this.pathParameterNames = pathParameterNames;
+    }
+
+    /**
+     * Set the path parameter offsets.
+     *
+     * <p>
+     * For each path parameter name the array contains the start and the end
+     * offset in the path info, or -1 and -1 if the capturing group did not
+     * participate in the match.
+     * </p>
+     *
+     * @param pathParameterOffsets the path parameter offsets.
+     */
+    public void setPathParameterOffsets(int[] pathParameterOffsets) {
+        this.pathParameterOffsets = pathParameterOffsets;
+    }
+
+    /**
+     * Set the response content type.
+     *
+     * @param responseContentType the response content type.
+     */
+    public void setResponseContentType(String responseContentType) {
+        this.responseContentType = responseContentType;
+    }
+
+    /**
+     * Set the response writer.
+     *
+     * @param responseWriter the response writer.
+     */
+    public void setResponseWriter(RestResponseWriter responseWriter) {
+        this.responseWriter = responseWriter;
+    }
+
     /**
      * Set the REST path.
      *
@@ -136,4 +464,22 @@ public class RestMappingMatch {
     public void setRestPath(String restPath) {
         this.restPath = restPath;
     }
+
+    /**
+     * Set the uncompressed flag.
+     *
+     * @param uncompressed the uncompressed flag.
+     */
+    public void setUncompressed(boolean uncompressed) {
+        this.uncompressed = uncompressed;
+    }
+
+    /**
+     * Set the version method.
+     *
+     * @param versionMethod the version method.
+     */
+    public void setVersionMethod(Method versionMethod) {
+        this.versionMethod = versionMethod;
+    }
 }
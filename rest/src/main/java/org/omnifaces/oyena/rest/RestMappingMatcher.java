@@ -26,6 +26,8 @@
  */
 package org.omnifaces.oyena.rest;
 
+import java.util.Collections;
+import java.util.Set;
 import javax.faces.context.FacesContext;
 
 /**
@@ -42,4 +44,19 @@ public interface RestMappingMatcher {
      * @return the REST mapping match, or null if not found.
      */
     public RestMappingMatch match(FacesContext facesContext);
+
+    /**
+     * Get the HTTP methods that would have matched the request.
+     *
+     * <p>
+     * This is called when the request could not be matched, to determine
+     * whether a 405 (Method Not Allowed) should be sent instead of a 404.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @return the allowed HTTP methods, or an empty set if none.
+     */
+    default Set<String> getAllowedMethods(FacesContext facesContext) {
+        return Collections.emptySet();
+    }
 }
@@ -38,7 +38,9 @@ import java.lang.annotation.Target;
  * 
  * <p>
  *  This mapping type is used to limit the REST mapping to a specific HTTP method
- *  (eg. GET / POST / HEAD / DELETE).
+ *  (eg. GET / POST / HEAD / DELETE). A GET mapping also answers HEAD requests
+ *  (without sending the body) unless there is a HEAD mapping for the same
+ *  path.
  * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
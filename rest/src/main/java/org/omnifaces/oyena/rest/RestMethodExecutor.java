@@ -26,6 +26,7 @@
  */
 package org.omnifaces.oyena.rest;
 
+import java.util.concurrent.Callable;
 import javax.faces.context.FacesContext;
 
 /**
@@ -43,4 +44,40 @@ public interface RestMethodExecutor {
      * @return the result.
      */
     public Object execute(FacesContext facesContext, RestMappingMatch restMappingMatch);
+
+    /**
+     * Prepare the method for execution on another thread.
+     *
+     * <p>
+     * Everything that needs the Faces context (e.g. binding the parameters) is
+     * done on the calling thread, the returned Callable only invokes the
+     * method and may be called on any thread. The default implementation
+     * executes the method on the calling thread.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the Callable returning the result.
+     */
+    default Callable<Object> prepare(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        Object result = execute(facesContext, restMappingMatch);
+        return () -> result;
+    }
+
+    /**
+     * Get the version of the resource.
+     *
+     * <p>
+     * This invokes the version method of the REST mapping match (see
+     * &#64;RestETag) before the method itself is executed. The default
+     * implementation returns null, meaning the version is not known.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the version, or null if not known.
+     */
+    default Object version(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        return null;
+    }
 }
@@ -48,4 +48,23 @@ public interface RestParameterProducer {
     public Object produce(FacesContext facesContext, 
             RestMappingMatch restMappingMatch, Class<?> parameterType, 
             Annotation[] parameterAnnotations);
+
+    /**
+     * Create a resolver for the given parameter.
+     *
+     * <p>
+     * This is called once for each parameter of a REST method. The default
+     * implementation returns a resolver that delegates to
+     * {@link #produce(FacesContext, RestMappingMatch, Class, Annotation[])}.
+     * </p>
+     *
+     * @param parameterType the parameter type.
+     * @param parameterAnnotations the annotations.
+     * @return the resolver.
+     */
+    default RestParameterResolver createResolver(Class<?> parameterType,
+            Annotation[] parameterAnnotations) {
+        return (facesContext, restMappingMatch) -> produce(facesContext,
+                restMappingMatch, parameterType, parameterAnnotations);
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+/**
+ * The REST response buffer pool.
+ *
+ * <p>
+ * This is a bounded pool of byte buffers used by the response writers to
+ * serialize a response before it is written out (see the REST response output
+ * stream). Acquiring a buffer never blocks, if the pool is empty a new buffer
+ * is allocated and if the pool is full a released buffer is simply dropped.
+ * </p>
+ *
+ * <p>
+ * The buffer size is set with the
+ * <code>org.omnifaces.oyena.rest.RESPONSE_BUFFER_SIZE</code> context parameter
+ * (defaults to 8192 bytes) and the number of pooled buffers with the
+ * <code>org.omnifaces.oyena.rest.RESPONSE_BUFFER_POOL_SIZE</code> context
+ * parameter (defaults to 64).
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ApplicationScoped
+public class RestResponseBufferPool {
+
+    /**
+     * Stores the buffer pool size context parameter name.
+     */
+    public static final String RESPONSE_BUFFER_POOL_SIZE_PARAM_NAME
+            = "org.omnifaces.oyena.rest.RESPONSE_BUFFER_POOL_SIZE";
+
+    /**
+     * Stores the buffer size context parameter name.
+     */
+    public static final String RESPONSE_BUFFER_SIZE_PARAM_NAME
+            = "org.omnifaces.oyena.rest.RESPONSE_BUFFER_SIZE";
+
+    /**
+     * Stores the buffer size.
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * Stores the pooled buffers.
+     */
+    private ArrayBlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(64);
+
+    /**
+     * Initialize the buffer size and the pool size.
+     */
+    @PostConstruct
+    public void initialize() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext != null) {
+            ExternalContext externalContext = facesContext.getExternalContext();
+            String size = externalContext.getInitParameter(RESPONSE_BUFFER_SIZE_PARAM_NAME);
+            if (size != null && Integer.parseInt(size.trim()) > 0) {
+                bufferSize = Integer.parseInt(size.trim());
+            }
+            String poolSize = externalContext.getInitParameter(RESPONSE_BUFFER_POOL_SIZE_PARAM_NAME);
+            if (poolSize != null && Integer.parseInt(poolSize.trim()) > 0) {
+                buffers = new ArrayBlockingQueue<>(Integer.parseInt(poolSize.trim()));
+            }
+        }
+    }
+
+    /**
+     * Acquire a buffer.
+     *
+     * @return the buffer.
+     */
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Get the buffer size.
+     *
+     * @return the buffer size.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Release a buffer.
+     *
+     * <p>
+     * The buffer must no longer be used after it has been released.
+     * </p>
+     *
+     * @param buffer the buffer.
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The REST response cache.
+ *
+ * <p>
+ * The REST response cache holds the serialized responses of the REST methods
+ * annotated with &#64;RestCacheable. It is bounded by a byte budget and each
+ * entry is only served until its time to live has passed.
+ * </p>
+ *
+ * <p>
+ * The cache is split into stripes (by hash of the key) that are each guarded
+ * by their own lock and each get an equal share of the byte budget. Each
+ * stripe is a segmented LRU: a new entry goes into the probation segment and
+ * is promoted to the protected segment when it is hit. The protected segment
+ * holds at most 80% of the budget of the stripe, its least recently used
+ * entries are demoted back to the probation segment when it is over that.
+ * When the stripe is over budget the least recently used entries of the
+ * probation segment are evicted first, so a burst of responses that are
+ * requested only once cannot flush the responses that are requested
+ * repeatedly. An expired entry is evicted when it is found. A response larger
+ * than the budget of a stripe is never cached.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestResponseCache {
+
+    /**
+     * Stores the estimated overhead of an entry (in bytes).
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Stores the share of the budget of a stripe for the protected segment
+     * (in percent).
+     */
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    /**
+     * Stores the number of stripes.
+     */
+    private static final int STRIPE_COUNT = 16;
+
+    /**
+     * Stores the byte budget.
+     */
+    private final long budget;
+
+    /**
+     * Stores the eviction counter.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Stores the hit counter.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Stores the miss counter.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Stores the stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Constructor.
+     *
+     * @param budget the byte budget.
+     */
+    public RestResponseCache(long budget) {
+        this.budget = budget;
+        this.stripes = new Stripe[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(Math.max(1, budget / STRIPE_COUNT));
+        }
+    }
+
+    /**
+     * Estimate the size of an entry.
+     *
+     * @param key the key.
+     * @param response the REST cached response.
+     * @return the estimated size (in bytes).
+     */
+    private static long estimateSize(String key, RestCachedResponse response) {
+        return ENTRY_OVERHEAD + 2L * key.length() + response.getBody().length;
+    }
+
+    /**
+     * Get the REST cached response for the given key.
+     *
+     * @param key the key.
+     * @return the REST cached response, or null if not cached (or expired).
+     */
+    public RestCachedResponse get(String key) {
+        RestCachedResponse response = getStripe(key).get(key);
+        if (response != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return response;
+    }
+
+    /**
+     * Get the byte budget.
+     *
+     * @return the byte budget.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Get the number of bytes in use.
+     *
+     * @return the estimated number of bytes in use.
+     */
+    public long getBytes() {
+        long result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.getBytes();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of evictions.
+     *
+     * @return the number of evictions (including expirations).
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of hits.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the maximum entry size.
+     *
+     * @return the size of the largest response that can be cached.
+     */
+    public int getMaxEntrySize() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, budget / STRIPE_COUNT - ENTRY_OVERHEAD));
+    }
+
+    /**
+     * Get the number of misses.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the stripe for the given key.
+     *
+     * @param key the key.
+     * @return the stripe.
+     */
+    private Stripe getStripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Put the REST cached response for the given key.
+     *
+     * @param key the key.
+     * @param response the REST cached response.
+     */
+    public void put(String key, RestCachedResponse response) {
+        getStripe(key).put(key, response);
+    }
+
+    /**
+     * A stripe of the cache (a segmented LRU).
+     */
+    private class Stripe {
+
+        /**
+         * Stores the byte budget.
+         */
+        private final long budget;
+
+        /**
+         * Stores the entries of the probation segment (in access order).
+         */
+        private final LinkedHashMap<String, RestCachedResponse> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Stores the number of bytes in use by the probation segment.
+         */
+        private long probationBytes;
+
+        /**
+         * Stores the entries of the protected segment (in access order).
+         */
+        private final LinkedHashMap<String, RestCachedResponse> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Stores the byte budget of the protected segment.
+         */
+        private final long protectedBudget;
+
+        /**
+         * Stores the number of bytes in use by the protected segment.
+         */
+        private long protectedBytes;
+
+        /**
+         * Constructor.
+         *
+         * @param budget the byte budget.
+         */
+        private Stripe(long budget) {
+            this.budget = budget;
+            this.protectedBudget = budget * PROTECTED_PERCENTAGE / 100;
+        }
+
+        /**
+         * Demote the least recently used entries of the protected segment to
+         * the probation segment until the protected segment is within its
+         * budget.
+         */
+        private void demote() {
+            Iterator<Map.Entry<String, RestCachedResponse>> iterator = protectedEntries.entrySet().iterator();
+            while (protectedBytes > protectedBudget && iterator.hasNext()) {
+                Map.Entry<String, RestCachedResponse> eldest = iterator.next();
+                long size = estimateSize(eldest.getKey(), eldest.getValue());
+                iterator.remove();
+                protectedBytes -= size;
+                probation.put(eldest.getKey(), eldest.getValue());
+                probationBytes += size;
+            }
+        }
+
+        /**
+         * Evict the least recently used entries, those of the probation
+         * segment first, until the stripe is within its budget. The entry
+         * that was just put is evicted last.
+         *
+         * @param key the key of the entry that was just put.
+         */
+        private void evict(String key) {
+            evict(probation.entrySet().iterator(), true, key);
+            evict(protectedEntries.entrySet().iterator(), false, key);
+        }
+
+        /**
+         * Evict the least recently used entries of a segment until the stripe
+         * is within its budget.
+         *
+         * @param iterator the iterator over the entries of the segment.
+         * @param isProbation true for the probation segment, false for the
+         * protected segment.
+         * @param key the key of the entry that was just put.
+         */
+        private void evict(Iterator<Map.Entry<String, RestCachedResponse>> iterator,
+                boolean isProbation, String key) {
+            while (probationBytes + protectedBytes > budget && iterator.hasNext()) {
+                Map.Entry<String, RestCachedResponse> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                long size = estimateSize(eldest.getKey(), eldest.getValue());
+                iterator.remove();
+                if (isProbation) {
+                    probationBytes -= size;
+                } else {
+                    protectedBytes -= size;
+                }
+                evictions.increment();
+            }
+        }
+
+        /**
+         * Get the entry.
+         *
+         * <p>
+         * An entry found in the probation segment is promoted to the protected
+         * segment.
+         * </p>
+         *
+         * @param key the key.
+         * @return the REST cached response, or null if not found (or expired).
+         */
+        private synchronized RestCachedResponse get(String key) {
+            RestCachedResponse response = protectedEntries.get(key);
+            if (response != null) {
+                if (response.isExpired(System.nanoTime())) {
+                    protectedEntries.remove(key);
+                    protectedBytes -= estimateSize(key, response);
+                    evictions.increment();
+                    response = null;
+                }
+                return response;
+            }
+            response = probation.remove(key);
+            if (response != null) {
+                long size = estimateSize(key, response);
+                probationBytes -= size;
+                if (response.isExpired(System.nanoTime())) {
+                    evictions.increment();
+                    response = null;
+                } else {
+                    protectedEntries.put(key, response);
+                    protectedBytes += size;
+                    demote();
+                }
+            }
+            return response;
+        }
+
+        /**
+         * Get the number of bytes in use.
+         *
+         * @return the number of bytes in use.
+         */
+        private synchronized long getBytes() {
+            return probationBytes + protectedBytes;
+        }
+
+        /**
+         * Put the entry.
+         *
+         * <p>
+         * An entry that is already in the protected segment is replaced there,
+         * any other entry goes into the probation segment.
+         * </p>
+         *
+         * @param key the key.
+         * @param response the REST cached response.
+         */
+        private synchronized void put(String key, RestCachedResponse response) {
+            long size = estimateSize(key, response);
+            if (size > budget) {
+                return;
+            }
+            RestCachedResponse previous = protectedEntries.get(key);
+            if (previous != null) {
+                protectedEntries.put(key, response);
+                protectedBytes += size - estimateSize(key, previous);
+                demote();
+            } else {
+                previous = probation.put(key, response);
+                if (previous != null) {
+                    probationBytes -= estimateSize(key, previous);
+                }
+                probationBytes += size;
+            }
+            evict(key);
+        }
+    }
+}
@@ -40,4 +40,21 @@ public interface RestResponseMatcher {
      * @return the response writer.
      */
     RestResponseWriter getResponseWriter(String responseContentType);
+
+    /**
+     * Negotiate the response content type.
+     *
+     * <p>
+     * If none of the response writers is acceptable the request is answered
+     * with a 406 (Not Acceptable). The default implementation does not
+     * negotiate and always returns application/json.
+     * </p>
+     *
+     * @param accept the value of the Accept request header.
+     * @return the negotiated response content type, or null if none of the
+     * response writers is acceptable.
+     */
+    default String negotiateResponseContentType(String accept) {
+        return "application/json";
+    }
 }
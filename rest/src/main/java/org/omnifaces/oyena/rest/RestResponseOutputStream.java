@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.faces.context.ExternalContext;
+
+/**
+ * The REST response output stream.
+ *
+ * <p>
+ * This output stream collects the response in the given buffer. If the
+ * response fits in the buffer it is written out in a single write with an
+ * exact Content-Length when the stream is closed, so it is not sent chunked.
+ * As soon as the response no longer fits the buffered bytes are written out
+ * and the stream switches to streaming, after which the buffer is flushed to
+ * the response whenever it is full.
+ * </p>
+ *
+ * <p>
+ * Closing this stream does not close the response output stream, as that one
+ * belongs to the container.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestResponseOutputStream extends OutputStream {
+
+    /**
+     * Stores the buffer.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Stores the closed flag.
+     */
+    private boolean closed;
+
+    /**
+     * Stores the number of buffered bytes.
+     */
+    private int count;
+
+    /**
+     * Stores the external context.
+     */
+    private final ExternalContext externalContext;
+
+    /**
+     * Stores the response output stream (or null if not streaming yet).
+     */
+    private OutputStream outputStream;
+
+    /**
+     * Constructor.
+     *
+     * @param externalContext the external context.
+     * @param buffer the buffer.
+     */
+    public RestResponseOutputStream(ExternalContext externalContext, byte[] buffer) {
+        this.externalContext = externalContext;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Close the stream.
+     *
+     * <p>
+     * If the stream has not switched to streaming the Content-Length is set
+     * and the buffered bytes are written out in one go, otherwise the
+     * remaining bytes are written out.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (outputStream == null) {
+                externalContext.setResponseContentLength(count);
+                OutputStream responseOutputStream = externalContext.getResponseOutputStream();
+                responseOutputStream.write(buffer, 0, count);
+                responseOutputStream.flush();
+            } else {
+                writeBuffer();
+                outputStream.flush();
+            }
+        }
+    }
+
+    /**
+     * Flush the stream.
+     *
+     * <p>
+     * This only flushes once the stream has switched to streaming, as flushing
+     * earlier would commit the response without a Content-Length.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (outputStream != null && !closed) {
+            writeBuffer();
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Flush the stream to the client.
+     *
+     * <p>
+     * Unlike flush this switches to streaming if needed, giving up the exact
+     * Content-Length, and flushes the response buffer, so the client receives
+     * what was written so far even if a response wrapper holds bytes back.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    public void flushToClient() throws IOException {
+        drain();
+        outputStream.flush();
+        externalContext.responseFlushBuffer();
+    }
+
+    /**
+     * Is the stream streaming.
+     *
+     * @return true if the response did not fit the buffer, false otherwise.
+     */
+    public boolean isStreaming() {
+        return outputStream != null;
+    }
+
+    /**
+     * Write a byte.
+     *
+     * @param b the byte.
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * Write the bytes.
+     *
+     * @param bytes the bytes.
+     * @param offset the offset.
+     * @param length the length.
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (length > buffer.length - count) {
+            drain();
+            if (length >= buffer.length) {
+                outputStream.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Switch to streaming (if needed) and write out the buffered bytes.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void drain() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (outputStream == null) {
+            outputStream = externalContext.getResponseOutputStream();
+        }
+        writeBuffer();
+    }
+
+    /**
+     * Write out the buffered bytes.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            outputStream.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
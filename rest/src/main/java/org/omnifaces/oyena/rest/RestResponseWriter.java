@@ -41,4 +41,19 @@ public interface RestResponseWriter {
      * @param facesContext the Faces context.
      */
     public void writeResponse(FacesContext facesContext);
+
+    /**
+     * Is the response writer streaming.
+     *
+     * <p>
+     * A streaming response writer flushes parts of the response to the client
+     * while writing it, so the response is not wrapped for ETag computation
+     * or compression as those hold bytes back.
+     * </p>
+     *
+     * @return true if it is, false otherwise.
+     */
+    default boolean isStreaming() {
+        return false;
+    }
 }
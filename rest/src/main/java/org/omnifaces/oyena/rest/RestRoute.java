@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.enterprise.inject.spi.Bean;
+
+/**
+ * The REST route class.
+ *
+ * <p>
+ * A REST route is the combination of a bean and one of its methods annotated
+ * with &#64;RestPath. REST routes are collected once during deployment by the
+ * REST extension, at which point the REST path is compiled and its literal
+ * prefix is determined.
+ * </p>
+ *
+ * <p>
+ * REST routes are ordered by specificity, most specific first. A route with a
+ * longer literal prefix is more specific, then a longer REST path is more
+ * specific. Remaining ties are broken by the declaring class and method name
+ * so the order is deterministic.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestRoute implements Comparable<RestRoute> {
+
+    /**
+     * Stores the regular expression meta characters.
+     */
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * Stores the pattern used to find named capturing groups.
+     */
+    private static final Pattern NAMED_GROUP_PATTERN = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+
+    /**
+     * Stores the regular expression quantifier characters.
+     */
+    private static final String QUANTIFIER_CHARACTERS = "?*+{";
+
+    /**
+     * Stores the bean.
+     */
+    private final Bean<?> bean;
+
+    /**
+     * Stores the cacheable annotation (or null if the response is not cached).
+     */
+    private final RestCacheable cacheable;
+
+    /**
+     * Stores the coalesced annotation (or null if requests are not coalesced).
+     */
+    private final RestCoalesced coalesced;
+
+    /**
+     * Stores the container thread flag.
+     */
+    private boolean containerThread;
+
+    /**
+     * Stores the ETag flag.
+     */
+    private final boolean etag;
+
+    /**
+     * Stores the HTTP method (or null if the route matches any HTTP method).
+     */
+    private final String httpMethod;
+
+    /**
+     * Stores the literal flag.
+     */
+    private final boolean literal;
+
+    /**
+     * Stores the literal prefix.
+     */
+    private final String literalPrefix;
+
+    /**
+     * Stores the method.
+     */
+    private final Method method;
+
+    /**
+     * Stores the path parameter names (a.k.a named capturing groups).
+     */
+    private final String[] pathParameterNames;
+
+    /**
+     * Stores the compiled pattern.
+     */
+    private final Pattern pattern;
+
+    /**
+     * Stores the response content type (or null if it is negotiated).
+     */
+    private final String responseContentType;
+
+    /**
+     * Stores the response writer.
+     */
+    private RestResponseWriter responseWriter;
+
+    /**
+     * Stores the REST path.
+     */
+    private final String restPath;
+
+    /**
+     * Stores the uncompressed flag.
+     */
+    private final boolean uncompressed;
+
+    /**
+     * Stores the version method (or null if the ETag is computed).
+     */
+    private final Method versionMethod;
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param method the method.
+     * @param restPath the REST path.
+     */
+    public RestRoute(Bean<?> bean, Method method, String restPath) {
+        this(bean, method, restPath, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param method the method.
+     * @param restPath the REST path.
+     * @param httpMethod the HTTP method (or null to match any HTTP method).
+     * @param responseContentType the response content type (or null if it is
+     * negotiated).
+     */
+    public RestRoute(Bean<?> bean, Method method, String restPath, String httpMethod,
+            String responseContentType) {
+        this.bean = bean;
+        this.responseContentType = responseContentType;
+        this.httpMethod = httpMethod;
+        this.containerThread = method.isAnnotationPresent(RestContainerThread.class);
+        this.uncompressed = method.isAnnotationPresent(RestUncompressed.class);
+        this.cacheable = method.getAnnotation(RestCacheable.class);
+        this.coalesced = method.getAnnotation(RestCoalesced.class);
+        RestETag restETag = method.getAnnotation(RestETag.class);
+        this.etag = restETag != null;
+        this.versionMethod = restETag != null && !restETag.version().isEmpty()
+                ? determineVersionMethod(method, restETag.version()) : null;
+        this.method = method;
+        this.restPath = restPath;
+        this.pattern = Pattern.compile(restPath);
+        this.literalPrefix = determineLiteralPrefix(restPath);
+        this.literal = isLiteral(restPath);
+        this.pathParameterNames = determinePathParameterNames(restPath);
+    }
+
+    /**
+     * Compare the specificity of the REST path to that of another route.
+     *
+     * <p>
+     * A literal REST path is more specific than a regular expression, then a
+     * longer literal prefix and then a longer REST path is more specific.
+     * </p>
+     *
+     * @param other the other route.
+     * @return a negative number if this route is more specific, a positive
+     * number if it is less specific, 0 if they are equally specific.
+     */
+    public int compareSpecificity(RestRoute other) {
+        int result = Boolean.compare(other.literal, literal);
+        if (result == 0) {
+            result = Integer.compare(other.literalPrefix.length(), literalPrefix.length());
+        }
+        if (result == 0) {
+            result = Integer.compare(other.restPath.length(), restPath.length());
+        }
+        return result;
+    }
+
+    /**
+     * Compare to another route by specificity.
+     *
+     * @param other the other route.
+     * @return a negative number if this route is more specific, a positive
+     * number if it is less specific.
+     */
+    @Override
+    public int compareTo(RestRoute other) {
+        int result = compareSpecificity(other);
+        if (result == 0) {
+            result = method.getDeclaringClass().getName().compareTo(
+                    other.method.getDeclaringClass().getName());
+        }
+        if (result == 0) {
+            result = method.getName().compareTo(other.method.getName());
+        }
+        if (result == 0) {
+            result = restPath.compareTo(other.restPath);
+        }
+        return result;
+    }
+
+    /**
+     * Determine the literal prefix of a REST path.
+     *
+     * <p>
+     * The literal prefix is the part of the regular expression that can only
+     * match itself. If the regular expression contains an alternation the
+     * literal prefix is empty as any alternative could match.
+     * </p>
+     *
+     * @param restPath the REST path.
+     * @return the literal prefix.
+     */
+    private static String determineLiteralPrefix(String restPath) {
+        StringBuilder prefix = new StringBuilder();
+        if (restPath.indexOf('|') == -1) {
+            for (int i = 0; i < restPath.length(); i++) {
+                char c = restPath.charAt(i);
+                if (c == '\\' && i + 1 < restPath.length()
+                        && !Character.isLetterOrDigit(restPath.charAt(i + 1))) {
+                    prefix.append(restPath.charAt(++i));
+                } else if (META_CHARACTERS.indexOf(c) != -1) {
+                    if (QUANTIFIER_CHARACTERS.indexOf(c) != -1 && prefix.length() > 0) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    return prefix.toString();
+                } else {
+                    prefix.append(c);
+                }
+            }
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Determine the version method.
+     *
+     * @param method the REST method.
+     * @param name the name of the version method.
+     * @return the version method.
+     * @throws IllegalArgumentException when the version method does not exist.
+     */
+    private static Method determineVersionMethod(Method method, String name) {
+        for (Method candidate : method.getDeclaringClass().getMethods()) {
+            if (candidate.getName().equals(name) && candidate.getReturnType() != void.class) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unable to find version method '" + name
+                + "' on " + method.getDeclaringClass().getName());
+    }
+
+    /**
+     * Is the given REST path a literal.
+     *
+     * @param restPath the REST path.
+     * @return true if it only contains literal (or escaped) characters, false
+     * otherwise.
+     */
+    private static boolean isLiteral(String restPath) {
+        for (int i = 0; i < restPath.length(); i++) {
+            char c = restPath.charAt(i);
+            if (c == '\\' && i + 1 < restPath.length()
+                    && !Character.isLetterOrDigit(restPath.charAt(i + 1))) {
+                i++;
+            } else if (META_CHARACTERS.indexOf(c) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine the path parameter names (a.k.a named capturing groups) of a
+     * REST path.
+     *
+     * @param restPath the REST path.
+     * @return the path parameter names.
+     */
+    private static String[] determinePathParameterNames(String restPath) {
+        ArrayList<String> names = new ArrayList<>();
+        Matcher matcher = NAMED_GROUP_PATTERN.matcher(restPath);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Get the bean.
+     *
+     * @return the bean.
+     */
+    public Bean<?> getBean() {
+        return bean;
+    }
+
+    /**
+     * Get the cacheable annotation.
+     *
+     * @return the &#64;RestCacheable annotation, or null if the response is not
+     * cached.
+     */
+    public RestCacheable getCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Get the coalesced annotation.
+     *
+     * @return the &#64;RestCoalesced annotation, or null if requests are not
+     * coalesced.
+     */
+    public RestCoalesced getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Get the HTTP method.
+     *
+     * @return the HTTP method, or null if the route matches any HTTP method.
+     */
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * Get the literal prefix.
+     *
+     * @return the literal prefix.
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the path parameter names (a.k.a named capturing groups).
+     *
+     * @return the path parameter names.
+     */
+    public String[] getPathParameterNames() {
+        return pathParameterNames;
+    }
+
+    /**
+     * Get the compiled pattern.
+     *
+     * @return the compiled pattern.
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Get the response content type.
+     *
+     * @return the response content type, or null if it is negotiated.
+     */
+    public String getResponseContentType() {
+        return responseContentType;
+    }
+
+    /**
+     * Get the response writer.
+     *
+     * @return the response writer, or null if not resolved.
+     */
+    public RestResponseWriter getResponseWriter() {
+        return responseWriter;
+    }
+
+    /**
+     * Get the REST path.
+     *
+     * @return the REST path.
+     */
+    public String getRestPath() {
+        return restPath;
+    }
+
+    /**
+     * Get the version method.
+     *
+     * @return the version method, or null if the ETag is computed.
+     */
+    public Method getVersionMethod() {
+        return versionMethod;
+    }
+
+    /**
+     * Set the response writer.
+     *
+     * <p>
+     * This is done once by the REST extension after deployment validation.
+     * </p>
+     *
+     * @param responseWriter the response writer.
+     */
+    public void setResponseWriter(RestResponseWriter responseWriter) {
+        this.responseWriter = responseWriter;
+    }
+
+    /**
+     * Set the container thread flag.
+     *
+     * <p>
+     * This is done once by the REST extension after deployment validation
+     * for a method that uses beans bound to the request.
+     * </p>
+     *
+     * @param containerThread the container thread flag.
+     */
+    public void setContainerThread(boolean containerThread) {
+        this.containerThread = containerThread;
+    }
+
+    /**
+     * Is the method to be invoked on the container thread.
+     *
+     * @return true if it is (see &#64;RestContainerThread), false otherwise.
+     */
+    public boolean isContainerThread() {
+        return containerThread;
+    }
+
+    /**
+     * Is the response to get an ETag.
+     *
+     * @return true if it is (see &#64;RestETag), false otherwise.
+     */
+    public boolean isEtag() {
+        return etag;
+    }
+
+    /**
+     * Is the REST path a literal.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    /**
+     * Is the response to be sent uncompressed.
+     *
+     * @return true if it is (see &#64;RestUncompressed), false otherwise.
+     */
+    public boolean isUncompressed() {
+        return uncompressed;
+    }
+}
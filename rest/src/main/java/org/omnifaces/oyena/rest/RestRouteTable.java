@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+
+/**
+ * The REST route table.
+ *
+ * <p>
+ * The REST route table is an immutable table of all the REST routes that were
+ * discovered during deployment. The routes are partitioned by HTTP method
+ * (see &#64;RestMethod) and for each HTTP method all the REST paths are
+ * compiled into a single matching structure:
+ * </p>
+ * <ul>
+ * <li>routes whose REST path is a literal are stored in a hash map,</li>
+ * <li>all other routes are stored in a trie keyed by their literal prefix.</li>
+ * </ul>
+ *
+ * <p>
+ * Matching a request only consults the structure of its HTTP method. It first
+ * consults the hash map and then walks the trie along the path info, so only
+ * the regular expressions of the routes whose literal prefix matches are ever
+ * evaluated, most specific first. A path info that does not start with the
+ * literal prefix of any route is therefore rejected without evaluating any
+ * regular expression. Routes without &#64;RestMethod are part of
+ * the structure of every HTTP method, a route with &#64;RestMethod wins over
+ * a route without it with the same specificity. GET routes are also part of
+ * the HEAD structure, an explicit HEAD route wins over a GET route with the
+ * same specificity.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestRouteTable {
+
+    /**
+     * Stores the index for HTTP methods without specific routes.
+     */
+    private final Index anyMethodIndex;
+
+    /**
+     * Stores the indexes by HTTP method.
+     */
+    private final Map<String, Index> methodIndexes;
+
+    /**
+     * Stores the routes.
+     */
+    private final List<RestRoute> routes;
+
+    /**
+     * Constructor.
+     *
+     * @param routes the routes.
+     */
+    public RestRouteTable(List<RestRoute> routes) {
+        ArrayList<RestRoute> sortedRoutes = new ArrayList<>(routes);
+        Collections.sort(sortedRoutes);
+        this.routes = Collections.unmodifiableList(sortedRoutes);
+        TreeMap<String, List<RestRoute>> methodRoutes = new TreeMap<>();
+        ArrayList<RestRoute> anyMethodRoutes = new ArrayList<>();
+        for (RestRoute route : sortedRoutes) {
+            if (route.getHttpMethod() != null) {
+                methodRoutes.computeIfAbsent(route.getHttpMethod(), m -> new ArrayList<>());
+                if (route.getHttpMethod().equals("GET")) {
+                    methodRoutes.computeIfAbsent("HEAD", m -> new ArrayList<>());
+                }
+            }
+        }
+        for (RestRoute route : sortedRoutes) {
+            if (route.getHttpMethod() == null) {
+                anyMethodRoutes.add(route);
+                methodRoutes.values().forEach(list -> list.add(route));
+            } else {
+                methodRoutes.get(route.getHttpMethod()).add(route);
+                if (route.getHttpMethod().equals("GET")) {
+                    methodRoutes.get("HEAD").add(route);
+                }
+            }
+        }
+        Comparator<RestRoute> methodOrder = ((Comparator<RestRoute>) RestRoute::compareSpecificity)
+                .thenComparing(route -> route.getHttpMethod() == null)
+                .thenComparing(route -> "GET".equals(route.getHttpMethod()))
+                .thenComparing(Comparator.naturalOrder());
+        methodRoutes.values().forEach(list -> list.sort(methodOrder));
+        this.anyMethodIndex = new Index(anyMethodRoutes);
+        this.methodIndexes = new TreeMap<>();
+        methodRoutes.forEach((method, list) -> methodIndexes.put(method, new Index(list)));
+    }
+
+    /**
+     * Create the REST mapping match.
+     *
+     * <p>
+     * The offsets of the path parameters are recorded while the matcher is at
+     * hand so they never have to be matched again.
+     * </p>
+     *
+     * @param route the route.
+     * @param pathInfo the path info.
+     * @param matcher the matcher (or null for a literal route).
+     * @return the REST mapping match.
+     */
+    private static RestMappingMatch createMatch(RestRoute route, String pathInfo, Matcher matcher) {
+        String[] names = route.getPathParameterNames();
+        int[] offsets = new int[names.length * 2];
+        for (int i = 0; i < names.length; i++) {
+            offsets[i * 2] = matcher.start(names[i]);
+            offsets[i * 2 + 1] = matcher.end(names[i]);
+        }
+        RestMappingMatch result = new RestMappingMatch();
+        result.setPathParameterNames(names);
+        result.setPathParameterOffsets(offsets);
+        result.setBean(route.getBean());
+        result.setCacheable(route.getCacheable());
+        result.setCoalesced(route.getCoalesced());
+        result.setContainerThread(route.isContainerThread());
+        result.setEtag(route.isEtag());
+        result.setUncompressed(route.isUncompressed());
+        result.setVersionMethod(route.getVersionMethod());
+        result.setMethod(route.getMethod());
+        result.setPathInfo(pathInfo);
+        result.setResponseContentType(route.getResponseContentType());
+        result.setResponseWriter(route.getResponseWriter());
+        result.setRestPath(route.getRestPath());
+        return result;
+    }
+
+    /**
+     * Get the HTTP methods that have a route matching the path info.
+     *
+     * <p>
+     * This is used to build the Allow header of a 405 response, so it only
+     * considers the HTTP methods that have specific routes.
+     * </p>
+     *
+     * @param pathInfo the path info.
+     * @return the allowed HTTP methods (in alphabetical order).
+     */
+    public Set<String> getAllowedMethods(String pathInfo) {
+        Set<String> result = new LinkedHashSet<>();
+        if (pathInfo != null) {
+            methodIndexes.forEach((method, index) -> {
+                if (index.match(pathInfo) != null) {
+                    result.add(method);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * <p>
+     * The routes are ordered by specificity, most specific first.
+     * </p>
+     *
+     * @return the routes.
+     */
+    public List<RestRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Match the HTTP method and path info.
+     *
+     * @param httpMethod the HTTP method.
+     * @param pathInfo the path info.
+     * @return the REST mapping match, or null if not found.
+     */
+    public RestMappingMatch match(String httpMethod, String pathInfo) {
+        RestMappingMatch result = null;
+        if (pathInfo != null) {
+            result = methodIndexes.getOrDefault(httpMethod, anyMethodIndex).match(pathInfo);
+        }
+        return result;
+    }
+
+    /**
+     * The matching structure for the routes of one HTTP method.
+     */
+    private static class Index {
+
+        /**
+         * Stores the literal routes.
+         */
+        private final Map<String, RestRoute> literalRoutes;
+
+        /**
+         * Stores the root of the literal prefix trie.
+         */
+        private final Node root;
+
+        /**
+         * Constructor.
+         *
+         * @param sortedRoutes the routes (sorted by specificity).
+         */
+        private Index(List<RestRoute> sortedRoutes) {
+            literalRoutes = new HashMap<>();
+            root = new Node();
+            for (RestRoute route : sortedRoutes) {
+                if (route.isLiteral()) {
+                    literalRoutes.putIfAbsent(route.getLiteralPrefix(), route);
+                } else {
+                    Node node = root;
+                    String prefix = route.getLiteralPrefix();
+                    for (int i = 0; i < prefix.length(); i++) {
+                        node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+                    }
+                    node.routeList.add(route);
+                }
+            }
+            root.compile();
+        }
+
+        /**
+         * Match the path info.
+         *
+         * @param pathInfo the path info.
+         * @return the REST mapping match, or null if not found.
+         */
+        private RestMappingMatch match(String pathInfo) {
+            RestRoute route = literalRoutes.get(pathInfo);
+            if (route != null) {
+                return createMatch(route, pathInfo, null);
+            }
+            return match(root, pathInfo, 0);
+        }
+
+        /**
+         * Match the path info against the given trie node and its descendants.
+         *
+         * <p>
+         * The deepest node is tried first as its routes have the longest
+         * literal prefix and are therefore the most specific.
+         * </p>
+         *
+         * @param node the node.
+         * @param pathInfo the path info.
+         * @param index the index into the path info.
+         * @return the REST mapping match, or null if not found.
+         */
+        private RestMappingMatch match(Node node, String pathInfo, int index) {
+            if (index < pathInfo.length()) {
+                Node child = node.children.get(pathInfo.charAt(index));
+                if (child != null) {
+                    RestMappingMatch result = match(child, pathInfo, index + 1);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+            for (RestRoute route : node.routes) {
+                Matcher matcher = route.getPattern().matcher(pathInfo);
+                if (matcher.matches()) {
+                    return createMatch(route, pathInfo, matcher);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A node in the literal prefix trie.
+     */
+    private static class Node {
+
+        /**
+         * Stores the children.
+         */
+        private final Map<Character, Node> children = new HashMap<>();
+
+        /**
+         * Stores the routes while building.
+         */
+        private final List<RestRoute> routeList = new ArrayList<>();
+
+        /**
+         * Stores the routes whose literal prefix ends at this node.
+         */
+        private RestRoute[] routes;
+
+        /**
+         * Compile this node and its children.
+         */
+        private void compile() {
+            routes = routeList.toArray(new RestRoute[0]);
+            routeList.clear();
+            children.values().forEach(Node::compile);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2020 OmniFaces. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.omnifaces.oyena.rest;
+
+import java.io.IOException;
+import javax.enterprise.inject.spi.CDI;
+import javax.faces.FacesException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The REST servlet.
+ *
+ * <p>
+ * This servlet is the servlet native fast path for REST requests. Instead of
+ * going through the FacesServlet (and the FacesContextFactory chain) it creates
+ * a lightweight REST faces context and hands it directly to the REST
+ * lifecycle. It is registered instead of the FacesServlet when the
+ * <code>org.omnifaces.oyena.rest.SERVLET_FAST_PATH</code> context parameter is
+ * set to <code>true</code>.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestServlet extends HttpServlet {
+
+    /**
+     * Stores the serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Stores the REST lifecycle.
+     */
+    private transient RestLifecycle lifecycle;
+
+    /**
+     * Initialize the servlet.
+     *
+     * @throws ServletException when a Servlet error occurs.
+     */
+    @Override
+    public void init() throws ServletException {
+        lifecycle = CDI.current().select(RestLifecycle.class).get();
+    }
+
+    /**
+     * Service the request.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @throws ServletException when a Servlet error occurs.
+     * @throws IOException when an I/O error occurs.
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        RestFacesContext facesContext = new RestFacesContext(getServletContext(), request, response);
+        try {
+            lifecycle.execute(facesContext);
+            lifecycle.render(facesContext);
+        } catch (FacesException fe) {
+            throw new ServletException(fe.getMessage(), fe.getCause() != null ? fe.getCause() : fe);
+        } finally {
+            facesContext.release();
+        }
+    }
+}
@@ -28,6 +28,8 @@ package test;
 
 import org.omnifaces.oyena.action.ActionMapping;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.enterprise.context.RequestScoped;
 import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletRequest;
@@ -52,6 +54,16 @@ public class ActionBean implements Serializable {
         return "/index.xhtml";
     }
     
+    /**
+     * Execute the asynchronous action.
+     * 
+     * @return /index.xhtml (asynchronously).
+     */
+    @ActionMapping("/async")
+    public CompletionStage<String> executeAsync() {
+        return CompletableFuture.supplyAsync(() -> "/index.xhtml");
+    }
+    
     /**
      * Execute the header action.
      * 
@@ -27,6 +27,8 @@
 package test;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.enterprise.context.RequestScoped;
 import org.omnifaces.oyena.rest.RestHeaderParameter;
 import org.omnifaces.oyena.rest.RestPath;
@@ -41,6 +43,37 @@ import org.omnifaces.oyena.rest.RestQueryParameter;
 @RequestScoped
 public class RestBean implements Serializable {
 
+    /**
+     * Stores the count.
+     */
+    private int count;
+
+    /**
+     * Test an asynchronous REST method.
+     *
+     * @return "Hello World" (asynchronously).
+     */
+    @RestPath("/async")
+    public CompletionStage<String> async() {
+        return CompletableFuture.supplyAsync(() -> "Hello World");
+    }
+
+    /**
+     * Test the batch endpoint with a request scoped bean.
+     *
+     * <p>
+     * POST [{"path":"/count"},{"path":"/count"}] to /_batch and both entries
+     * increment the count of the same request scoped bean, one after the
+     * other, so the bodies are 1 and 2 even though batch threads are enabled.
+     * </p>
+     *
+     * @return the count.
+     */
+    @RestPath("/count")
+    public int count() {
+        return ++count;
+    }
+
     /**
      * Test the @RestHeaderParameter annotation.
      *